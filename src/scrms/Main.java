@@ -11,6 +11,10 @@ public class Main {
     public static void main(String[] args) {
         ServiceRegistry registry = new ServiceRegistry();
         ConsoleController controller = new ConsoleController(registry);
-        controller.start();
+        try {
+            controller.start();
+        } finally {
+            registry.shutdown();
+        }
     }
 }
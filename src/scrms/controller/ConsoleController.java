@@ -9,7 +9,9 @@ import scrms.service.*;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 /**
@@ -151,8 +153,12 @@ public class ConsoleController {
     private void enrollStudent(StudentService service) {
         String studentId = prompt("Student ID: ");
         String courseId = prompt("Course ID: ");
-        services.getCourseService().enrollStudent(courseId, studentId);
-        System.out.println("Enrollment completed.");
+        EnrollmentOutcome outcome = services.getCourseService().enrollStudent(courseId, studentId);
+        System.out.println(outcome == EnrollmentOutcome.WAITLISTED ? "Course full, student waitlisted."
+                : "Enrollment completed.");
+        if (outcome == EnrollmentOutcome.ENROLLED) {
+            repairTimetable(TimetableChange.enrollmentChanged(courseId));
+        }
     }
 
     private void manageInstructors() {
@@ -229,6 +235,9 @@ public class ConsoleController {
             System.out.println("3. Update course");
             System.out.println("4. Delete course");
             System.out.println("5. Enroll student");
+            System.out.println("6. Enroll students in bulk");
+            System.out.println("7. Drop student");
+            System.out.println("8. Set seat limit");
             System.out.println("0. Back");
             String choice = prompt("Select: ");
             try {
@@ -238,6 +247,9 @@ public class ConsoleController {
                     case "3" -> updateCourse(service);
                     case "4" -> deleteCourse(service);
                     case "5" -> enrollStudentInCourse(service);
+                    case "6" -> enrollStudentsInBulk(service);
+                    case "7" -> dropStudentFromCourse(service);
+                    case "8" -> setSeatLimit(service);
                     case "0" -> back = true;
                     default -> System.out.println("Invalid option.");
                 }
@@ -286,19 +298,63 @@ public class ConsoleController {
         course.setRoomId(roomId);
         service.update(course);
         System.out.println("Course updated.");
+        repairTimetable(TimetableChange.courseChanged(courseId));
     }
 
     private void deleteCourse(CourseService service) {
         String id = prompt("Course ID to delete: ");
         service.delete(id);
         System.out.println("Course removed.");
+        repairTimetable(TimetableChange.courseRemoved(id));
     }
 
     private void enrollStudentInCourse(CourseService service) {
         String courseId = prompt("Course ID: ");
         String studentId = prompt("Student ID: ");
-        service.enrollStudent(courseId, studentId);
-        System.out.println("Student enrolled.");
+        EnrollmentOutcome outcome = service.enrollStudent(courseId, studentId);
+        System.out.println(outcome == EnrollmentOutcome.WAITLISTED ? "Course full, student waitlisted."
+                : "Student enrolled.");
+        if (outcome == EnrollmentOutcome.ENROLLED) {
+            repairTimetable(TimetableChange.enrollmentChanged(courseId));
+        }
+    }
+
+    private void dropStudentFromCourse(CourseService service) {
+        String courseId = prompt("Course ID: ");
+        String studentId = prompt("Student ID: ");
+        String promoted = service.dropStudent(courseId, studentId);
+        System.out.println("Student dropped.");
+        if (promoted != null) {
+            System.out.println("Promoted from waitlist: " + promoted);
+        }
+        repairTimetable(TimetableChange.enrollmentChanged(courseId));
+    }
+
+    private void setSeatLimit(CourseService service) {
+        String courseId = prompt("Course ID: ");
+        String text = prompt("Seat limit (blank for room capacity): ");
+        service.setSeatLimit(courseId, text.isBlank() ? null : Integer.parseInt(text.trim()));
+        Course course = service.findById(courseId);
+        System.out.println("Seats taken: " + course.getSeatsTaken() + "/" + service.seatLimitOf(course)
+                + ", waitlisted: " + course.getWaitlistCount());
+        repairTimetable(TimetableChange.enrollmentChanged(courseId));
+    }
+
+    private void enrollStudentsInBulk(CourseService service) {
+        String courseId = prompt("Course ID: ");
+        List<String> studentIds = new ArrayList<>();
+        for (String id : prompt("Student IDs (comma separated): ").split(",")) {
+            if (!id.isBlank()) {
+                studentIds.add(id.trim());
+            }
+        }
+        Map<String, EnrollmentOutcome> outcomes = service.enrollAll(courseId, studentIds);
+        for (Map.Entry<String, EnrollmentOutcome> entry : outcomes.entrySet()) {
+            System.out.println(entry.getKey() + " -> " + entry.getValue());
+        }
+        if (outcomes.containsValue(EnrollmentOutcome.ENROLLED)) {
+            repairTimetable(TimetableChange.enrollmentChanged(courseId));
+        }
     }
 
     private void manageRooms() {
@@ -363,6 +419,7 @@ public class ConsoleController {
         String id = prompt("Room ID to delete: ");
         service.delete(id);
         System.out.println("Room deleted.");
+        repairTimetable(TimetableChange.roomRemoved(id));
     }
 
     private void manageTimetables() {
@@ -374,6 +431,7 @@ public class ConsoleController {
             System.out.println("2. Generate automatic timetable");
             System.out.println("3. Create custom slot");
             System.out.println("4. Delete slot");
+            System.out.println("5. Room utilization");
             System.out.println("0. Back");
             String choice = prompt("Select: ");
             try {
@@ -382,6 +440,7 @@ public class ConsoleController {
                     case "2" -> generateTimetable(service);
                     case "3" -> createSlot(service);
                     case "4" -> deleteSlot(service);
+                    case "5" -> showUtilization(service);
                     case "0" -> back = true;
                     default -> System.out.println("Invalid option.");
                 }
@@ -414,6 +473,27 @@ public class ConsoleController {
         System.out.println("Slot created.");
     }
 
+    private void showUtilization(TimetableService service) {
+        System.out.println("Weekday utilization " + AvailabilityService.DEFAULT_DAY_START + "-"
+                + AvailabilityService.DEFAULT_DAY_END);
+        for (Room room : services.getRoomService().findAll()) {
+            double total = 0;
+            for (DayOfWeek day = DayOfWeek.MONDAY; day != DayOfWeek.SATURDAY; day = day.plus(1)) {
+                total += service.utilization(room.getRoomId(), day, AvailabilityService.DEFAULT_DAY_START,
+                        AvailabilityService.DEFAULT_DAY_END);
+            }
+            System.out.printf("%s (%s): %.0f%%%n", room.getName(), room.getRoomId(), total / 5 * 100);
+        }
+    }
+
+    private void repairTimetable(TimetableChange change) {
+        TimetableSolver.Solution repaired = services.getTimetableService().repair(change);
+        if (!repaired.getSlots().isEmpty() || !repaired.getUnplacedCourseIds().isEmpty()) {
+            System.out.println("Timetable repaired: " + repaired.getSlots().size() + " slot(s) re-placed, "
+                    + repaired.getUnplacedCourseIds().size() + " course(s) left unscheduled.");
+        }
+    }
+
     private void deleteSlot(TimetableService service) {
         String slotId = prompt("Slot ID to delete: ");
         service.deleteSlot(slotId);
@@ -430,6 +510,9 @@ public class ConsoleController {
             System.out.println("3. Approve booking");
             System.out.println("4. Reject booking");
             System.out.println("5. Cancel booking");
+            System.out.println("6. Process pending queue");
+            System.out.println("7. Find free rooms");
+            System.out.println("8. Skip occurrence of recurring booking");
             System.out.println("0. Back");
             String choice = prompt("Select: ");
             try {
@@ -439,10 +522,13 @@ public class ConsoleController {
                     case "3" -> approveBooking(service);
                     case "4" -> rejectBooking(service);
                     case "5" -> cancelBooking(service);
+                    case "6" -> processBookingQueue(service);
+                    case "7" -> findFreeRooms();
+                    case "8" -> skipOccurrence(service);
                     case "0" -> back = true;
                     default -> System.out.println("Invalid option.");
                 }
-            } catch (BookingConflictException | ResourceNotFoundException e) {
+            } catch (BookingConflictException | ResourceNotFoundException | IllegalArgumentException e) {
                 System.out.println("Operation failed: " + e.getMessage());
             }
         }
@@ -453,6 +539,9 @@ public class ConsoleController {
         System.out.println("Bookings (" + bookings.size() + ")");
         for (RoomBooking booking : bookings) {
             System.out.println(booking.toJSON());
+            if (booking.isRecurring()) {
+                System.out.println("  Occurs on: " + booking.occurrences());
+            }
         }
     }
 
@@ -463,10 +552,20 @@ public class ConsoleController {
         LocalDate date = promptDate("Date (YYYY-MM-DD): ");
         LocalTime start = promptTime("Start time (HH:MM): ");
         LocalTime end = promptTime("End time (HH:MM): ");
-        RoomBooking booking = service.requestBooking(roomId, requester, purpose, date, start, end);
+        Recurrence recurrence = promptRecurrence();
+        LocalDate until = recurrence == Recurrence.NONE ? null : promptDate("Repeat until (YYYY-MM-DD): ");
+        RoomBooking booking = service.requestRecurringBooking(roomId, requester, purpose, date, start, end,
+                recurrence, until, null);
         System.out.println("Booking requested: " + booking.getBookingId());
     }
 
+    private void skipOccurrence(BookingService service) {
+        String bookingId = prompt("Recurring booking ID: ");
+        LocalDate date = promptDate("Date to skip (YYYY-MM-DD): ");
+        service.skipOccurrence(bookingId, date);
+        System.out.println("Occurrence skipped.");
+    }
+
     private void approveBooking(BookingService service) {
         String bookingId = prompt("Booking ID to approve: ");
         service.approve(bookingId);
@@ -479,6 +578,33 @@ public class ConsoleController {
         System.out.println("Booking rejected.");
     }
 
+    private void processBookingQueue(BookingService service) {
+        Map<String, ApprovalOutcome> outcomes = service.processQueue();
+        System.out.println("Processed " + outcomes.size() + " pending booking(s).");
+        for (Map.Entry<String, ApprovalOutcome> entry : outcomes.entrySet()) {
+            System.out.println(entry.getKey() + " -> " + entry.getValue());
+        }
+    }
+
+    private void findFreeRooms() {
+        LocalDate from = promptDate("From date (YYYY-MM-DD): ");
+        LocalDate to = promptDate("To date (YYYY-MM-DD): ");
+        int duration = promptInt("Duration in minutes: ");
+        int capacity = promptInt("Minimum capacity: ");
+        RoomType type = promptOptionalRoomType();
+        Map<String, List<AvailabilityWindow>> windows = services.getAvailabilityService()
+                .findFreeWindows(from, to, duration, capacity, type);
+        if (windows.isEmpty()) {
+            System.out.println("No free rooms found.");
+            return;
+        }
+        for (List<AvailabilityWindow> roomWindows : windows.values()) {
+            for (AvailabilityWindow window : roomWindows) {
+                System.out.println(window);
+            }
+        }
+    }
+
     private void cancelBooking(BookingService service) {
         String bookingId = prompt("Booking ID to cancel: ");
         service.cancel(bookingId);
@@ -567,6 +693,9 @@ public class ConsoleController {
     private void recordGrade(GradeService service) {
         String studentId = prompt("Student ID: ");
         String courseId = prompt("Course ID: ");
+        if (service.hasReport(studentId, courseId)) {
+            System.out.println("Note: this student already has a report for the course.");
+        }
         double score = promptDouble("Score: ");
         String remarks = prompt("Remarks: ");
         GradeReport report = service.recordGrade(studentId, courseId, score, remarks);
@@ -677,4 +806,32 @@ public class ConsoleController {
             }
         }
     }
+
+    private RoomType promptOptionalRoomType() {
+        while (true) {
+            String text = prompt("Room type (LECTURE/LAB/AUDITORIUM/MEETING, blank for any): ").toUpperCase();
+            if (text.isBlank()) {
+                return null;
+            }
+            try {
+                return RoomType.valueOf(text);
+            } catch (Exception e) {
+                System.out.println("Invalid room type.");
+            }
+        }
+    }
+
+    private Recurrence promptRecurrence() {
+        while (true) {
+            String text = prompt("Repeat (NONE/WEEKLY/BIWEEKLY, blank for none): ").toUpperCase();
+            if (text.isBlank()) {
+                return Recurrence.NONE;
+            }
+            try {
+                return Recurrence.valueOf(text);
+            } catch (Exception e) {
+                System.out.println("Invalid repetition.");
+            }
+        }
+    }
 }
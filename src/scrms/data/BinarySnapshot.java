@@ -0,0 +1,216 @@
+package scrms.data;
+
+import scrms.exceptions.PersistenceException;
+import scrms.utils.BinaryReader;
+import scrms.utils.BinaryWriter;
+import scrms.utils.FileUtils;
+import scrms.utils.FsyncPolicy;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Compact snapshot format used to speed up cold starts.
+ * <p>
+ * Layout: the magic bytes {@code SCRB}, a format version, the record count, then every record as a
+ * length-prefixed run of typed fields encoded by {@link BinaryWriter}. Loading decodes those fields
+ * directly, without scanning any text, and the length prefixes let a mapped snapshot be split across
+ * threads.
+ */
+final class BinarySnapshot {
+
+    /**
+     * Format version; bump it whenever a model changes the fields it writes so older files are ignored.
+     */
+    static final int VERSION = 2;
+
+    private static final int MAGIC = 0x53435242;
+    private static final int HEADER_BYTES = 12;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private BinarySnapshot() {
+    }
+
+    /**
+     * Writes the entities into the snapshot file.
+     *
+     * @param path     snapshot file
+     * @param entities entities to write
+     * @param toBinary encoder of an entity's fields
+     * @param policy   fsync policy of the owning store
+     * @param <T>      entity type
+     */
+    static <T> void write(Path path, Collection<T> entities, BiConsumer<T, BinaryWriter> toBinary,
+                          FsyncPolicy policy) {
+        FileUtils.writeChannel(path, channel -> {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            BinaryWriter record = new BinaryWriter();
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(entities.size());
+            for (T entity : entities) {
+                toBinary.accept(entity, record.reset());
+                if (buffer.remaining() < Integer.BYTES + record.size()) {
+                    drain(channel, buffer);
+                }
+                if (buffer.remaining() < Integer.BYTES + record.size()) {
+                    ByteBuffer large = ByteBuffer.allocate(Integer.BYTES + record.size());
+                    large.putInt(record.size());
+                    record.writeTo(large);
+                    large.flip();
+                    writeFully(channel, large);
+                } else {
+                    buffer.putInt(record.size());
+                    record.writeTo(buffer);
+                }
+            }
+            drain(channel, buffer);
+        }, policy);
+    }
+
+    /**
+     * Reads every record of a snapshot file.
+     *
+     * @param path       snapshot file
+     * @param fromBinary decoder of an entity's fields
+     * @param <T>        entity type
+     * @return entities, or null when the file is missing, truncated, corrupt or of another version
+     */
+    static <T> List<T> read(Path path, Function<BinaryReader, T> fromBinary) {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            buffer.flip();
+            fill(channel, buffer, HEADER_BYTES);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            int count = buffer.getInt();
+            List<T> entities = new ArrayList<>(Math.max(0, Math.min(count, 1 << 16)));
+            for (int i = 0; i < count; i++) {
+                fill(channel, buffer, Integer.BYTES);
+                int length = buffer.getInt();
+                if (length < 0) {
+                    return null;
+                }
+                if (length <= buffer.capacity()) {
+                    fill(channel, buffer, length);
+                    entities.add(fromBinary.apply(new BinaryReader(buffer, buffer.position(),
+                            buffer.position() + length)));
+                    buffer.position(buffer.position() + length);
+                } else {
+                    ByteBuffer large = ByteBuffer.allocate(length);
+                    large.put(buffer);
+                    while (large.hasRemaining()) {
+                        if (channel.read(large) < 0) {
+                            throw new EOFException();
+                        }
+                    }
+                    entities.add(fromBinary.apply(new BinaryReader(large, 0, length)));
+                }
+            }
+            return entities;
+        } catch (EOFException | IllegalArgumentException | IndexOutOfBoundsException | DateTimeException e) {
+            // A damaged record decodes to garbage lengths, ordinals or dates; the caller falls back to JSON.
+            return null;
+        } catch (IOException e) {
+            throw new PersistenceException("Unable to read snapshot " + path, e);
+        }
+    }
+
+    /**
+     * Reads every record of a snapshot file through a memory mapping. Records are decoded straight from
+     * the mapped bytes; decoded strings are copied, so no entity refers to the mapping and it is released
+     * before returning.
+     *
+     * @param path       snapshot file
+     * @param fromBinary decoder of an entity's fields
+     * @param parallel   true to decode the located records on the fork/join pool
+     * @param <T>        entity type
+     * @return entities, or null when the file is missing, truncated, corrupt, too large to map or of another
+     *         version
+     */
+    static <T> List<T> readMapped(Path path, Function<BinaryReader, T> fromBinary, boolean parallel) {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                return size < HEADER_BYTES ? null : read(path, fromBinary);
+            }
+            ByteBuffer buffer = FileUtils.mapReadOnly(channel, size);
+            List<T> entities = decode(buffer, fromBinary, parallel);
+            // Only released once decoding succeeded: after a failure, decode tasks may still be reading it.
+            FileUtils.release(buffer);
+            return entities;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeException e) {
+            return null;
+        } catch (IOException e) {
+            throw new PersistenceException("Unable to read snapshot " + path, e);
+        }
+    }
+
+    private static <T> List<T> decode(ByteBuffer buffer, Function<BinaryReader, T> fromBinary, boolean parallel) {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            return null;
+        }
+        int count = buffer.getInt();
+        List<T> entities = parallel ? null : new ArrayList<>(Math.min(count, buffer.remaining() / Integer.BYTES));
+        ParallelParser.Records records = parallel ? new ParallelParser.Records() : null;
+        for (int i = 0; i < count; i++) {
+            if (buffer.remaining() < Integer.BYTES) {
+                return null;
+            }
+            int length = buffer.getInt();
+            if (length < 0 || buffer.remaining() < length) {
+                return null;
+            }
+            int start = buffer.position();
+            int end = start + length;
+            if (parallel) {
+                records.add(start, end, true);
+            } else {
+                entities.add(fromBinary.apply(new BinaryReader(buffer, start, end)));
+            }
+            buffer.position(end);
+        }
+        return parallel ? ParallelParser.decode(buffer, records, fromBinary) : entities;
+    }
+
+    private static void fill(FileChannel channel, ByteBuffer buffer, int required) throws IOException {
+        if (buffer.remaining() >= required) {
+            return;
+        }
+        buffer.compact();
+        while (buffer.position() < required) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        writeFully(channel, buffer);
+        buffer.clear();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -1,68 +1,379 @@
 package scrms.data;
 
+import scrms.exceptions.PersistenceException;
+import scrms.utils.BinaryReader;
+import scrms.utils.BinaryWriter;
 import scrms.utils.FileUtils;
-import scrms.utils.JsonUtils;
+import scrms.utils.FsyncPolicy;
+import scrms.utils.JsonArrayReader;
+import scrms.utils.JsonArrayScanner;
+import scrms.utils.JsonCursor;
+import scrms.utils.JsonWriter;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Generic JSON file repository able to store and read typed entities.
+ * <p>
+ * Stores created with an id extractor run in journaled mode: {@link #put(Object)} and {@link #remove(String)}
+ * append a single delta line to {@code <name>.journal} next to the snapshot file instead of rewriting it.
+ * Once the journal grows past {@link #COMPACTION_THRESHOLD} records a background task folds it into the
+ * snapshot, and {@link #load()} always replays any pending journal on top of the snapshot.
+ * <p>
+ * Snapshots are replaced atomically and journal appends are forced to disk according to the store's
+ * {@link FsyncPolicy}, which defaults to {@link FsyncPolicy#BATCHED}. When a {@link WriteBehindScheduler}
+ * is attached, journal records are serialized by the writer without holding the store's monitor,
+ * buffered in memory, coalesced per entity and appended in batches.
+ * <p>
+ * Stores given a {@link #setBinaryCodec binary codec} also write every snapshot as a compact binary
+ * {@code <name>.bin} file of typed fields, which is preferred on load while it is at least as new as the
+ * JSON file; the JSON file remains the human-readable export.
+ * <p>
+ * Large read-mostly stores can opt into {@link #setMemoryMapped(boolean) memory-mapped loading}, which maps
+ * the snapshot with {@link FileChannel#map} and parses records straight from the mapped bytes. With
+ * {@link #setParallelLoad(boolean) parallel loading} the record boundaries are located first and the
+ * records are then parsed in chunks across all cores.
  *
  * @param <T> entity type
  */
 public class DataStore<T> {
 
+    /**
+     * Number of journal records after which a background compaction is scheduled.
+     */
+    public static final int COMPACTION_THRESHOLD = 1_000;
+
+    private static final String OP_PUT = "put";
+    private static final String OP_DELETE = "delete";
+    private static final String RECORD_START = "{\"op\":";
+    private static final int RECORD_LOCK_STRIPES = 64;
+
+    private static final ExecutorService COMPACTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "datastore-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private final Path filePath;
-    private final Function<String, T> fromJson;
-    private final Function<T, String> toJson;
+    private final Path journalPath;
+    private final Path compactingPath;
+    private final Path binaryPath;
+    private final Function<CharSequence, T> fromJson;
+    private final BiConsumer<T, JsonWriter> toJson;
+    private final Function<T, String> idOf;
+    private volatile BiConsumer<T, BinaryWriter> toBinary;
+    private volatile Function<BinaryReader, T> fromBinary;
+    private final Object compactionLock = new Object();
+    /**
+     * Serializes journal writers; acquired after {@link #compactionLock} and before the store's monitor.
+     */
+    private final Object journalLock = new Object();
+    /**
+     * Striped by entity id so buffered records of one entity keep the order in which they were serialized.
+     */
+    private final Object[] recordLocks = new Object[RECORD_LOCK_STRIPES];
+    private final Map<String, String> pending = new LinkedHashMap<>();
+    private volatile FsyncPolicy fsyncPolicy = FsyncPolicy.BATCHED;
+    private volatile boolean binarySnapshot = true;
+    private volatile boolean memoryMapped;
+    private volatile boolean parallelLoad;
+    private volatile WriteBehindScheduler writeBehind;
+    private int journalRecords;
+    private boolean compactionScheduled;
 
     /**
      * Creates a new repository bound to a specific file inside the data directory.
      *
      * @param fileName target file, e.g. students.json
-     * @param fromJson converter from JSON string to entity
-     * @param toJson   converter from entity to JSON string
+     * @param fromJson converter from JSON text to entity
+     * @param toJson   writer streaming an entity as JSON
      */
-    public DataStore(String fileName, Function<String, T> fromJson, Function<T, String> toJson) {
+    public DataStore(String fileName, Function<CharSequence, T> fromJson, BiConsumer<T, JsonWriter> toJson) {
+        this(fileName, fromJson, toJson, null);
+    }
+
+    /**
+     * Creates a journaled repository bound to a specific file inside the data directory.
+     *
+     * @param fileName target file, e.g. students.json
+     * @param fromJson converter from JSON text to entity
+     * @param toJson   writer streaming an entity as JSON
+     * @param idOf     extractor for the entity identifier, or null to disable journaling
+     */
+    public DataStore(String fileName, Function<CharSequence, T> fromJson, BiConsumer<T, JsonWriter> toJson,
+                     Function<T, String> idOf) {
         this.filePath = Paths.get("data", fileName);
+        String baseName = fileName.endsWith(".json") ? fileName.substring(0, fileName.length() - 5) : fileName;
+        this.journalPath = filePath.resolveSibling(baseName + ".journal");
+        this.compactingPath = filePath.resolveSibling(baseName + ".journal.compacting");
+        this.binaryPath = filePath.resolveSibling(baseName + ".bin");
         this.fromJson = fromJson;
         this.toJson = toJson;
+        this.idOf = idOf;
+        for (int i = 0; i < recordLocks.length; i++) {
+            recordLocks[i] = new Object();
+        }
     }
 
     /**
-     * Loads all entities from the file.
+     * Loads all entities from the file, replaying any journaled changes on top of the snapshot.
      *
      * @return list of entities
      */
-    public synchronized List<T> load() {
-        String raw = FileUtils.readFile(filePath);
-        List<T> entities = new ArrayList<>();
-        if (raw == null || raw.isBlank()) {
-            return entities;
+    public List<T> load() {
+        synchronized (compactionLock) {
+            synchronized (journalLock) {
+                flushPending();
+                synchronized (this) {
+                    List<T> snapshot = readSnapshot();
+                    if (idOf == null) {
+                        return snapshot;
+                    }
+                    Map<String, T> entities = new LinkedHashMap<>();
+                    for (T entity : snapshot) {
+                        entities.put(idOf.apply(entity), entity);
+                    }
+                    replay(compactingPath, entities, false);
+                    journalRecords = replay(journalPath, entities, true);
+                    return new ArrayList<>(entities.values());
+                }
+            }
         }
-        for (String object : JsonUtils.splitJsonArray(raw)) {
-            if (!object.isBlank()) {
-                entities.add(fromJson.apply(object));
+    }
+
+    /**
+     * Persists the provided entities into the file. Any pending journal is discarded because the
+     * written snapshot already reflects the full state.
+     *
+     * @param entities entities to write
+     */
+    public void save(Collection<T> entities) {
+        synchronized (compactionLock) {
+            synchronized (journalLock) {
+                synchronized (this) {
+                    writeSnapshot(entities);
+                    pending.clear();
+                    deleteFile(compactingPath);
+                    deleteFile(journalPath);
+                    journalRecords = 0;
+                }
             }
         }
-        return entities;
     }
 
     /**
-     * Persists the provided entities into the file.
+     * Records an inserted or updated entity as a single journal line. The entity is serialized right
+     * away so later in-memory changes cannot leak into a buffered write. With a write-behind scheduler the
+     * serialization runs outside the store's monitor, which is then held only to buffer the line.
+     *
+     * @param entity entity to write
+     */
+    public void put(T entity) {
+        requireJournaled();
+        String id = idOf.apply(entity);
+        record(id, () -> putLine(id, entity));
+    }
+
+    /**
+     * Records several inserted or updated entities. Without a write-behind scheduler all lines are
+     * appended to the journal in a single write.
      *
      * @param entities entities to write
      */
-    public synchronized void save(List<T> entities) {
-        List<String> serialized = new ArrayList<>();
-        for (T entity : entities) {
-            serialized.add(toJson.apply(entity));
+    public void putAll(Collection<T> entities) {
+        requireJournaled();
+        if (activeWriteBehind() != null) {
+            for (T entity : entities) {
+                put(entity);
+            }
+            return;
+        }
+        synchronized (journalLock) {
+            flushPending();
+            StringBuilder batch = new StringBuilder();
+            for (T entity : entities) {
+                batch.append(putLine(idOf.apply(entity), entity)).append(System.lineSeparator());
+            }
+            if (!entities.isEmpty()) {
+                synchronized (this) {
+                    append(batch.toString(), entities.size());
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the removal of an entity as a single journal line.
+     *
+     * @param id identifier of the removed entity
+     */
+    public void remove(String id) {
+        requireJournaled();
+        String line = JsonWriter.stringify(writer -> writer.beginObject()
+                .name("op").value(OP_DELETE)
+                .name("id").value(id)
+                .endObject());
+        record(id, () -> line);
+    }
+
+    /**
+     * Buffers journal records in memory and lets the scheduler append them in coalesced batches.
+     * Passing null restores synchronous appends after writing anything still buffered.
+     *
+     * @param scheduler scheduler to attach, or null
+     */
+    public void setWriteBehind(WriteBehindScheduler scheduler) {
+        synchronized (journalLock) {
+            this.writeBehind = scheduler;
+            flushPending();
         }
-        FileUtils.writeFile(filePath, JsonUtils.wrapArray(serialized));
+    }
+
+    /**
+     * Appends every buffered journal record to disk in a single write. The batch is taken out of the
+     * buffer first, so puts can continue while it is written.
+     */
+    public void flushPending() {
+        synchronized (journalLock) {
+            Map<String, String> batch;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = new LinkedHashMap<>(pending);
+                pending.clear();
+            }
+            try {
+                StringBuilder lines = new StringBuilder();
+                for (String line : batch.values()) {
+                    lines.append(line).append(System.lineSeparator());
+                }
+                synchronized (this) {
+                    append(lines.toString(), batch.size());
+                }
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    // Keep the failed batch ahead of newer records so a retry writes them in order.
+                    for (Map.Entry<String, String> newer : pending.entrySet()) {
+                        batch.remove(newer.getKey());
+                        batch.put(newer.getKey(), newer.getValue());
+                    }
+                    pending.clear();
+                    pending.putAll(batch);
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Folds the journal into the snapshot file. Appends may continue while the fold runs because the
+     * journal is first rotated aside; a fold interrupted by a crash is simply replayed again.
+     */
+    public void compact() {
+        if (idOf == null) {
+            return;
+        }
+        synchronized (compactionLock) {
+            synchronized (this) {
+                compactionScheduled = false;
+                if (!Files.exists(compactingPath)) {
+                    if (!Files.exists(journalPath)) {
+                        return;
+                    }
+                    rotateJournal();
+                    journalRecords = 0;
+                }
+            }
+            Map<String, T> entities = new LinkedHashMap<>();
+            for (T entity : readSnapshot()) {
+                entities.put(idOf.apply(entity), entity);
+            }
+            replay(compactingPath, entities, false);
+            writeSnapshot(new ArrayList<>(entities.values()));
+            deleteFile(compactingPath);
+        }
+    }
+
+    /**
+     * Chooses the latency/durability trade-off for snapshot writes and journal appends.
+     *
+     * @param fsyncPolicy policy to apply from now on
+     */
+    public void setFsyncPolicy(FsyncPolicy fsyncPolicy) {
+        this.fsyncPolicy = fsyncPolicy;
+    }
+
+    /**
+     * @return current fsync policy
+     */
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    /**
+     * Sets the codec of the binary snapshot. Without a codec only the JSON snapshot is written.
+     *
+     * @param toBinary   encoder of an entity's fields
+     * @param fromBinary decoder of an entity's fields, reading them in the order they were written
+     */
+    public void setBinaryCodec(BiConsumer<T, BinaryWriter> toBinary, Function<BinaryReader, T> fromBinary) {
+        this.toBinary = toBinary;
+        this.fromBinary = fromBinary;
+    }
+
+    /**
+     * Enables or disables the binary snapshot written next to the JSON file when a codec is set.
+     *
+     * @param binarySnapshot true to write and prefer the binary snapshot
+     */
+    public void setBinarySnapshot(boolean binarySnapshot) {
+        this.binarySnapshot = binarySnapshot;
+    }
+
+    /**
+     * Enables or disables memory-mapped loading. Mapped snapshots are scanned as raw bytes and records
+     * are parsed in place, so loading never materializes the file as one large decoded string. Parsed
+     * entities copy their values out of the mapping, which is unmapped as soon as loading succeeds so the
+     * snapshot can be replaced afterwards even on Windows, where a mapped file cannot be renamed over.
+     * <p>
+     * Limitation: explicit unmapping relies on the JDK-internal {@code sun.misc.Unsafe}; where it is not
+     * available the file is read into a heap buffer instead of being mapped. When loading fails, the
+     * mapping is left to the garbage collector and replacing the snapshot may fail on Windows until then.
+     *
+     * @param memoryMapped true to map snapshot files when loading
+     */
+    public void setMemoryMapped(boolean memoryMapped) {
+        this.memoryMapped = memoryMapped;
+    }
+
+    /**
+     * Enables or disables parallel parsing on load. Loading maps the snapshot as with
+     * {@link #setMemoryMapped(boolean)}, scans it once for record boundaries and parses chunks of records
+     * on the common fork/join pool, merging them back in file order.
+     *
+     * @param parallelLoad true to parse snapshot records in parallel
+     */
+    public void setParallelLoad(boolean parallelLoad) {
+        this.parallelLoad = parallelLoad;
     }
 
     /**
@@ -71,4 +382,264 @@ public class DataStore<T> {
     public Path getFilePath() {
         return filePath;
     }
+
+    /**
+     * @return journal file receiving single-record changes
+     */
+    public Path getJournalPath() {
+        return journalPath;
+    }
+
+    private List<T> readSnapshot() {
+        Function<BinaryReader, T> decoder = fromBinary;
+        if (binarySnapshot && decoder != null && isBinaryCurrent()) {
+            List<T> entities = memoryMapped || parallelLoad
+                    ? BinarySnapshot.readMapped(binaryPath, decoder, parallelLoad)
+                    : BinarySnapshot.read(binaryPath, decoder);
+            if (entities != null) {
+                return entities;
+            }
+        }
+        if (memoryMapped || parallelLoad) {
+            List<T> entities = readMapped();
+            if (entities != null) {
+                return entities;
+            }
+        }
+        List<T> entities = new ArrayList<>();
+        try (JsonArrayReader reader = new JsonArrayReader(FileUtils.openReader(filePath))) {
+            String object;
+            while ((object = reader.next()) != null) {
+                if (!object.isEmpty()) {
+                    entities.add(fromJson.apply(object));
+                }
+            }
+        } catch (IOException e) {
+            throw new PersistenceException("Unable to read file " + filePath, e);
+        }
+        return entities;
+    }
+
+    private List<T> readMapped() {
+        if (!Files.exists(filePath)) {
+            return new ArrayList<>();
+        }
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                // A single mapping is limited to 2 GB; larger files fall back to the streaming reader.
+                return null;
+            }
+            ByteBuffer bytes = FileUtils.mapReadOnly(channel, size);
+            JsonArrayScanner scanner = new JsonArrayScanner(bytes);
+            List<T> entities;
+            if (parallelLoad) {
+                ParallelParser.Records records = new ParallelParser.Records();
+                while (scanner.next()) {
+                    records.add(scanner.start(), scanner.end(), scanner.isAscii());
+                }
+                entities = ParallelParser.parse(bytes, records, fromJson);
+            } else {
+                entities = new ArrayList<>();
+                while (scanner.next()) {
+                    entities.add(fromJson.apply(scanner.element()));
+                }
+            }
+            // Only released once parsing succeeded: after a failure, parse tasks may still be reading it.
+            FileUtils.release(bytes);
+            return entities;
+        } catch (IOException e) {
+            throw new PersistenceException("Unable to map file " + filePath, e);
+        }
+    }
+
+    private void writeSnapshot(Collection<T> entities) {
+        FileUtils.writeFile(filePath, out -> {
+            JsonWriter writer = new JsonWriter(out);
+            writer.beginArray();
+            for (T entity : entities) {
+                toJson.accept(entity, writer);
+            }
+            writer.endArray().flush();
+        }, fsyncPolicy);
+        BiConsumer<T, BinaryWriter> encoder = toBinary;
+        if (binarySnapshot && encoder != null) {
+            BinarySnapshot.write(binaryPath, entities, encoder, fsyncPolicy);
+        } else {
+            deleteFile(binaryPath);
+        }
+    }
+
+    private boolean isBinaryCurrent() {
+        try {
+            if (!Files.exists(binaryPath)) {
+                return false;
+            }
+            return !Files.exists(filePath)
+                    || Files.getLastModifiedTime(binaryPath).compareTo(Files.getLastModifiedTime(filePath)) >= 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Applies every intact record of a journal. Each record starts with {@link #RECORD_START}, which cannot
+     * occur unescaped inside a value, so a torn record glued to the next one by an earlier crash is skipped
+     * and the record after it is still applied. When repairing, an unterminated last line left by an
+     * interrupted append is cut off, or terminated when it is complete, so later appends start on a clean line.
+     */
+    private int replay(Path journal, Map<String, T> entities, boolean repair) {
+        if (!Files.exists(journal)) {
+            return 0;
+        }
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(journal);
+        } catch (IOException e) {
+            throw new PersistenceException("Unable to read journal " + journal, e);
+        }
+        int applied = 0;
+        int lineStart = 0;
+        while (lineStart < bytes.length) {
+            int newline = lineStart;
+            while (newline < bytes.length && bytes[newline] != '\n') {
+                newline++;
+            }
+            boolean terminated = newline < bytes.length;
+            String line = new String(bytes, lineStart, newline - lineStart, StandardCharsets.UTF_8);
+            boolean intact = true;
+            int from = line.indexOf(RECORD_START);
+            while (from >= 0) {
+                int next = line.indexOf(RECORD_START, from + 1);
+                intact = apply(next < 0 ? line.substring(from) : line.substring(from, next), entities);
+                if (intact) {
+                    applied++;
+                }
+                from = next;
+            }
+            if (!terminated && repair) {
+                repairTail(journal, intact && !line.isBlank() ? -1 : lineStart);
+            }
+            lineStart = newline + 1;
+        }
+        return applied;
+    }
+
+    private boolean apply(String record, Map<String, T> entities) {
+        String op = null;
+        String id = null;
+        T value = null;
+        try {
+            JsonCursor cursor = new JsonCursor(record);
+            while (cursor.nextField()) {
+                if (cursor.nameIs("op")) {
+                    op = cursor.readString();
+                } else if (cursor.nameIs("id")) {
+                    id = cursor.readString();
+                } else if (cursor.nameIs("value")) {
+                    value = fromJson.apply(cursor.readRaw());
+                }
+            }
+        } catch (RuntimeException e) {
+            return false;
+        }
+        if (OP_DELETE.equals(op) && id != null) {
+            entities.remove(id);
+            return true;
+        }
+        if (OP_PUT.equals(op) && id != null && value != null) {
+            entities.put(id, value);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Truncates the journal to the given length, or terminates its last line when the length is negative.
+     */
+    private void repairTail(Path journal, long length) {
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+            if (length >= 0) {
+                channel.truncate(length);
+            } else {
+                channel.position(channel.size());
+                ByteBuffer separator = StandardCharsets.UTF_8.encode(System.lineSeparator());
+                while (separator.hasRemaining()) {
+                    channel.write(separator);
+                }
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new PersistenceException("Unable to repair journal " + journal, e);
+        }
+    }
+
+    private String putLine(String id, T entity) {
+        return JsonWriter.stringify(writer -> {
+            writer.beginObject().name("op").value(OP_PUT).name("id").value(id).name("value");
+            toJson.accept(entity, writer);
+            writer.endObject();
+        });
+    }
+
+    private void record(String id, Supplier<String> line) {
+        String text = null;
+        if (activeWriteBehind() != null) {
+            synchronized (recordLocks[Math.floorMod(id.hashCode(), recordLocks.length)]) {
+                text = line.get();
+                synchronized (this) {
+                    WriteBehindScheduler scheduler = activeWriteBehind();
+                    if (scheduler != null && scheduler.markDirty(this, pending.size() + 1)) {
+                        // Only the latest state of an entity matters, so a newer record replaces a buffered one.
+                        pending.remove(id);
+                        pending.put(id, text);
+                        return;
+                    }
+                }
+            }
+        }
+        synchronized (journalLock) {
+            flushPending();
+            String serialized = text != null ? text : line.get();
+            synchronized (this) {
+                append(serialized + System.lineSeparator(), 1);
+            }
+        }
+    }
+
+    private WriteBehindScheduler activeWriteBehind() {
+        WriteBehindScheduler scheduler = writeBehind;
+        return scheduler == null || scheduler.isShutdown() ? null : scheduler;
+    }
+
+    private void append(String lines, int count) {
+        FileUtils.appendFile(journalPath, lines, fsyncPolicy);
+        journalRecords += count;
+        if (journalRecords >= COMPACTION_THRESHOLD && !compactionScheduled) {
+            compactionScheduled = true;
+            COMPACTOR.execute(this::compact);
+        }
+    }
+
+    private void rotateJournal() {
+        try {
+            Files.move(journalPath, compactingPath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new PersistenceException("Unable to rotate journal " + journalPath, e);
+        }
+    }
+
+    private void deleteFile(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new PersistenceException("Unable to delete " + path, e);
+        }
+    }
+
+    private void requireJournaled() {
+        if (idOf == null) {
+            throw new IllegalStateException("Store " + filePath + " is not journaled");
+        }
+    }
 }
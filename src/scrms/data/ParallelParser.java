@@ -0,0 +1,146 @@
+package scrms.data;
+
+import scrms.utils.BinaryReader;
+import scrms.utils.JsonArrayScanner;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Parses records whose byte ranges are already known on the common fork/join pool. The range list is
+ * split in halves until chunks are small enough to parse sequentially, and every result is stored at the
+ * index of its record so the merged list keeps the file order.
+ */
+final class ParallelParser {
+
+    /**
+     * Number of records parsed by a single task without splitting further.
+     */
+    static final int CHUNK_SIZE = 1_024;
+
+    private ParallelParser() {
+    }
+
+    /**
+     * Parses every record of the index.
+     *
+     * @param bytes    buffer holding the records, read with absolute accesses only
+     * @param records  byte ranges of the records
+     * @param fromJson converter from JSON text to entity
+     * @param <T>      entity type
+     * @return entities in record order
+     */
+    static <T> List<T> parse(ByteBuffer bytes, Records records, Function<CharSequence, T> fromJson) {
+        return run(records.size(), index -> fromJson.apply(records.chars(bytes, index)));
+    }
+
+    /**
+     * Decodes every binary record of the index.
+     *
+     * @param bytes      buffer holding the records, read with absolute accesses only
+     * @param records    byte ranges of the records
+     * @param fromBinary decoder of an entity's fields
+     * @param <T>        entity type
+     * @return entities in record order
+     */
+    static <T> List<T> decode(ByteBuffer bytes, Records records, Function<BinaryReader, T> fromBinary) {
+        return run(records.size(),
+                index -> fromBinary.apply(new BinaryReader(bytes, records.starts[index], records.ends[index])));
+    }
+
+    private static <T> List<T> run(int size, IntFunction<T> converter) {
+        Object[] results = new Object[size];
+        ParseTask<T> task = new ParseTask<>(converter, results, 0, size);
+        if (size <= CHUNK_SIZE) {
+            task.compute();
+        } else {
+            ForkJoinPool.commonPool().invoke(task);
+        }
+        List<T> entities = new ArrayList<>(results.length);
+        for (Object result : results) {
+            @SuppressWarnings("unchecked")
+            T entity = (T) result;
+            entities.add(entity);
+        }
+        return entities;
+    }
+
+    /**
+     * Growable list of record byte ranges collected by a boundary scan.
+     */
+    static final class Records {
+
+        private int[] starts = new int[256];
+        private int[] ends = new int[256];
+        private final BitSet nonAscii = new BitSet();
+        private int size;
+
+        /**
+         * Appends a record range.
+         *
+         * @param start offset of the first byte
+         * @param end   offset one past the last byte
+         * @param ascii whether the range contains only ASCII bytes
+         */
+        void add(int start, int end, boolean ascii) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+            }
+            if (!ascii) {
+                nonAscii.set(size);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            size++;
+        }
+
+        /**
+         * @return number of records
+         */
+        int size() {
+            return size;
+        }
+
+        private CharSequence chars(ByteBuffer bytes, int index) {
+            return JsonArrayScanner.chars(bytes, starts[index], ends[index], !nonAscii.get(index));
+        }
+    }
+
+    private static final class ParseTask<T> extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final IntFunction<T> converter;
+        private final Object[] results;
+        private final int from;
+        private final int to;
+
+        private ParseTask(IntFunction<T> converter, Object[] results, int from, int to) {
+            this.converter = converter;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE) {
+                for (int i = from; i < to; i++) {
+                    results[i] = converter.apply(i);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ParseTask<>(converter, results, from, middle),
+                    new ParseTask<>(converter, results, middle, to));
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package scrms.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Coalesces journal writes of many stores into periodic batched flushes.
+ * <p>
+ * Stores attached through {@link DataStore#setWriteBehind(WriteBehindScheduler)} buffer their changes in
+ * memory and mark themselves dirty here. A background thread flushes every dirty store once per interval,
+ * or as soon as a store has buffered the configured number of changes. {@link #flush()} is a synchronous
+ * barrier that writes everything pending before returning. A failed background flush leaves the store
+ * dirty for a retry and is kept so that the next {@link #flush()} can report it if the retry fails too.
+ */
+public class WriteBehindScheduler {
+
+    /**
+     * Default delay between background flushes.
+     */
+    public static final long DEFAULT_INTERVAL_MILLIS = 500;
+
+    /**
+     * Default number of buffered changes that triggers an early flush of a store.
+     */
+    public static final int DEFAULT_MAX_PENDING = 256;
+
+    private final Set<DataStore<?>> dirty = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService executor;
+    private final int maxPending;
+    private final AtomicReference<RuntimeException> backgroundFailure = new AtomicReference<>();
+    private volatile boolean shutdown;
+
+    /**
+     * Creates a scheduler with the default interval and batch size.
+     */
+    public WriteBehindScheduler() {
+        this(DEFAULT_INTERVAL_MILLIS, DEFAULT_MAX_PENDING);
+    }
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param intervalMillis delay between background flushes
+     * @param maxPending     buffered changes per store that trigger an early flush
+     */
+    public WriteBehindScheduler(long intervalMillis, int maxPending) {
+        this.maxPending = maxPending;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> flushQuietly(dirty), intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes every pending change of every dirty store before returning.
+     */
+    public void flush() {
+        RuntimeException earlier = backgroundFailure.getAndSet(null);
+        try {
+            List<DataStore<?>> stores = new ArrayList<>(dirty);
+            for (DataStore<?> store : stores) {
+                flush(store);
+            }
+        } catch (RuntimeException e) {
+            if (earlier != null && earlier != e) {
+                e.addSuppressed(earlier);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Flushes all pending changes and stops the background thread. Later changes are written through
+     * immediately by the stores. Waits for a background flush that is still running, so every change
+     * buffered before this call is on disk when it returns.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            shutdown = true;
+            executor.shutdown();
+        }
+        try {
+            // A background flush may still be writing a store that is no longer marked dirty.
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * @return true once {@link #shutdown()} was called
+     */
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * Marks a store as having buffered changes. Called with the store's monitor held, before the change
+     * is buffered, so a flush of the store cannot miss it.
+     *
+     * @param store   store holding the change
+     * @param pending number of changes the store buffers once this one is added
+     * @return false once the scheduler is shut down; the store must then write the change through
+     */
+    synchronized boolean markDirty(DataStore<?> store, int pending) {
+        if (shutdown) {
+            return false;
+        }
+        dirty.add(store);
+        if (pending >= maxPending) {
+            try {
+                executor.execute(() -> flushQuietly(List.of(store)));
+            } catch (RejectedExecutionException e) {
+                // The periodic flush or the final flush of shutdown() still writes the store.
+            }
+        }
+        return true;
+    }
+
+    private void flush(DataStore<?> store) {
+        dirty.remove(store);
+        try {
+            store.flushPending();
+        } catch (RuntimeException e) {
+            dirty.add(store);
+            throw e;
+        }
+    }
+
+    private void flushQuietly(Collection<DataStore<?>> stores) {
+        try {
+            for (DataStore<?> store : new ArrayList<>(stores)) {
+                flush(store);
+            }
+        } catch (RuntimeException e) {
+            // Keep the background thread alive; the changes stay dirty and are retried on the next flush.
+            backgroundFailure.set(e);
+        }
+    }
+}
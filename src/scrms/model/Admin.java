@@ -1,10 +1,10 @@
 package scrms.model;
 
 import scrms.utils.IdGenerator;
-import scrms.utils.JsonUtils;
+import scrms.utils.JsonCursor;
+import scrms.utils.JsonWriter;
 import scrms.utils.PasswordUtils;
 
-import java.util.Map;
 
 /**
  * Administrative user capable of performing privileged tasks.
@@ -37,10 +37,10 @@ public class Admin extends User {
     }
 
     @Override
-    public String toJSON() {
-        return "{" + "\"adminId\":" + JsonUtils.quote(adminId) + ","
-                + baseJsonFields() + ","
-                + "\"fullName\":" + JsonUtils.quote(fullName) + "}";
+    public void writeJSON(JsonWriter writer) {
+        writer.beginObject().name("adminId").value(adminId);
+        writeBaseFields(writer);
+        writer.name("fullName").value(fullName).endObject();
     }
 
     /**
@@ -49,12 +49,23 @@ public class Admin extends User {
      * @param json json object
      * @return admin instance
      */
-    public static Admin fromJSON(String json) {
-        Map<String, String> values = JsonUtils.parseJsonObject(json);
-        String adminId = JsonUtils.unquote(values.get("adminId"));
-        String username = JsonUtils.unquote(values.get("username"));
-        String passwordHash = JsonUtils.unquote(values.get("passwordHash"));
-        String fullName = JsonUtils.unquote(values.get("fullName"));
+    public static Admin fromJSON(CharSequence json) {
+        JsonCursor cursor = new JsonCursor(json);
+        String adminId = null;
+        String username = null;
+        String passwordHash = null;
+        String fullName = null;
+        while (cursor.nextField()) {
+            if (cursor.nameIs("adminId")) {
+                adminId = cursor.readString();
+            } else if (cursor.nameIs("username")) {
+                username = cursor.readString();
+            } else if (cursor.nameIs("passwordHash")) {
+                passwordHash = cursor.readString();
+            } else if (cursor.nameIs("fullName")) {
+                fullName = cursor.readString();
+            }
+        }
         return new Admin(adminId, username, passwordHash, fullName);
     }
 
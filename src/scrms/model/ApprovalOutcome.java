@@ -0,0 +1,11 @@
+package scrms.model;
+
+/**
+ * Result of processing a booking in a batch approval.
+ */
+public enum ApprovalOutcome {
+    APPROVED,
+    REJECTED_TIMETABLE_CONFLICT,
+    REJECTED_BOOKING_CONFLICT,
+    NOT_FOUND
+}
@@ -1,10 +1,12 @@
 package scrms.model;
 
+import scrms.utils.BinaryReader;
+import scrms.utils.BinaryWriter;
 import scrms.utils.IdGenerator;
-import scrms.utils.JsonUtils;
+import scrms.utils.JsonCursor;
+import scrms.utils.JsonWriter;
 
 import java.time.LocalDate;
-import java.util.Map;
 
 /**
  * Represents an attendance entry for a student in a course.
@@ -66,20 +68,48 @@ public class AttendanceRecord {
     }
 
     public String toJSON() {
-        return "{" + "\"recordId\":" + JsonUtils.quote(recordId) + ","
-                + "\"studentId\":" + JsonUtils.quote(studentId) + ","
-                + "\"courseId\":" + JsonUtils.quote(courseId) + ","
-                + "\"date\":" + JsonUtils.quote(date.toString()) + ","
-                + "\"present\":" + present + "}";
-    }
-
-    public static AttendanceRecord fromJSON(String json) {
-        Map<String, String> map = JsonUtils.parseJsonObject(json);
-        String id = JsonUtils.unquote(map.get("recordId"));
-        String studentId = JsonUtils.unquote(map.get("studentId"));
-        String courseId = JsonUtils.unquote(map.get("courseId"));
-        LocalDate date = LocalDate.parse(JsonUtils.unquote(map.get("date")));
-        boolean present = Boolean.parseBoolean(map.get("present"));
+        return JsonWriter.stringify(this::writeJSON);
+    }
+
+    public void writeJSON(JsonWriter writer) {
+        writer.beginObject()
+                .name("recordId").value(recordId)
+                .name("studentId").value(studentId)
+                .name("courseId").value(courseId)
+                .name("date").value(date)
+                .name("present").value(present)
+                .endObject();
+    }
+
+    public static AttendanceRecord fromJSON(CharSequence json) {
+        JsonCursor cursor = new JsonCursor(json);
+        String id = null;
+        String studentId = null;
+        String courseId = null;
+        LocalDate date = null;
+        boolean present = false;
+        while (cursor.nextField()) {
+            if (cursor.nameIs("recordId")) {
+                id = cursor.readString();
+            } else if (cursor.nameIs("studentId")) {
+                studentId = cursor.readString();
+            } else if (cursor.nameIs("courseId")) {
+                courseId = cursor.readString();
+            } else if (cursor.nameIs("date")) {
+                date = cursor.readLocalDate();
+            } else if (cursor.nameIs("present")) {
+                present = cursor.readBoolean();
+            }
+        }
         return new AttendanceRecord(id, studentId, courseId, date, present);
     }
+
+    public void writeBinary(BinaryWriter writer) {
+        writer.value(recordId).value(studentId).value(courseId).value(date).value(present);
+    }
+
+    public static AttendanceRecord fromBinary(BinaryReader reader) {
+        return new AttendanceRecord(reader.readString(), reader.readString(), reader.readString(),
+                reader.readLocalDate(), reader.readBoolean());
+    }
 }
@@ -0,0 +1,43 @@
+package scrms.model;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Free period of a room on a given date, as returned by an availability search.
+ */
+public class AvailabilityWindow {
+
+    private final String roomId;
+    private final LocalDate date;
+    private final LocalTime startTime;
+    private final LocalTime endTime;
+
+    public AvailabilityWindow(String roomId, LocalDate date, LocalTime startTime, LocalTime endTime) {
+        this.roomId = roomId;
+        this.date = date;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    public String getRoomId() {
+        return roomId;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public LocalTime getStartTime() {
+        return startTime;
+    }
+
+    public LocalTime getEndTime() {
+        return endTime;
+    }
+
+    @Override
+    public String toString() {
+        return roomId + " " + date + " " + startTime + "-" + endTime;
+    }
+}
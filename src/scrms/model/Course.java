@@ -1,32 +1,55 @@
 package scrms.model;
 
+import scrms.utils.BinaryReader;
+import scrms.utils.BinaryWriter;
 import scrms.utils.IdGenerator;
-import scrms.utils.JsonUtils;
+import scrms.utils.JsonCursor;
+import scrms.utils.JsonWriter;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents a course offered on campus.
+ * <p>
+ * Taken seats and waiting students are counted together in one {@link AtomicLong}: {@link #enroll(String, int)}
+ * claims a seat with a compare-and-set that only succeeds while nobody is waiting, so concurrent
+ * enrollments never overbook or overtake the waitlist, and only the short membership update holds this
+ * course's monitor. Students who find the course full queue on a FIFO waitlist and are moved in by
+ * {@link #drop(String, int)} and {@link #promote(int)}.
  */
 public class Course {
 
+    private static final long ONE_WAITING = 1L << 32;
+
     private final String courseId;
     private String title;
     private int credits;
     private String instructorId;
     private String roomId;
-    private final List<String> enrolledStudentIds;
+    private final Set<String> enrolledStudentIds;
+    private final Set<String> waitlist = new LinkedHashSet<>();
+    /**
+     * Waiting students in the high half, taken seats in the low half.
+     */
+    private final AtomicLong seats;
+    private Integer seatLimit;
 
     public Course(String courseId, String title, int credits, String instructorId,
-                  String roomId, List<String> enrolledStudentIds) {
+                  String roomId, Collection<String> enrolledStudentIds) {
         this.courseId = courseId;
         this.title = title;
         this.credits = credits;
         this.instructorId = instructorId;
         this.roomId = roomId;
-        this.enrolledStudentIds = enrolledStudentIds != null ? new ArrayList<>(enrolledStudentIds) : new ArrayList<>();
+        this.enrolledStudentIds = enrolledStudentIds != null ? new LinkedHashSet<>(enrolledStudentIds) : new LinkedHashSet<>();
+        this.seats = new AtomicLong(this.enrolledStudentIds.size());
     }
 
     public static Course create(String title, int credits, String instructorId, String roomId) {
@@ -69,39 +92,274 @@ public class Course {
         this.roomId = roomId;
     }
 
-    public List<String> getEnrolledStudentIds() {
-        return new ArrayList<>(enrolledStudentIds);
+    /**
+     * Returns the enrolled student identifiers in enrollment order.
+     *
+     * @return read-only copy taken under this course's monitor
+     */
+    public synchronized Set<String> getEnrolledStudentIds() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(enrolledStudentIds));
+    }
+
+    /**
+     * @return number of enrolled students
+     */
+    public synchronized int getEnrolledCount() {
+        return enrolledStudentIds.size();
+    }
+
+    /**
+     * Returns the students waiting for a seat, longest waiting first.
+     *
+     * @return read-only copy taken under this course's monitor
+     */
+    public synchronized Set<String> getWaitlistStudentIds() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(waitlist));
+    }
+
+    /**
+     * @return number of waiting students
+     */
+    public synchronized int getWaitlistCount() {
+        return waitlist.size();
+    }
+
+    /**
+     * Returns the explicit seat limit.
+     *
+     * @return seat limit, or null when the assigned room's capacity applies
+     */
+    public Integer getSeatLimit() {
+        return seatLimit;
+    }
+
+    public void setSeatLimit(Integer seatLimit) {
+        this.seatLimit = seatLimit;
+    }
+
+    /**
+     * Returns the number of taken seats without locking.
+     *
+     * @return taken seats
+     */
+    public int getSeatsTaken() {
+        return taken(seats.get());
+    }
+
+    /**
+     * Enrolls a student if a seat is free under the limit and nobody is waiting, otherwise adds the student
+     * to the waitlist. A repeated request briefly holds a seat before it finds the student enrolled, so a
+     * student may be waitlisted meanwhile; callers run {@link #promote(int)} after ALREADY_ENROLLED.
+     *
+     * @param studentId student identifier
+     * @param limit     seat limit in force
+     * @return ENROLLED, ALREADY_ENROLLED or WAITLISTED
+     */
+    public EnrollmentOutcome enroll(String studentId, int limit) {
+        if (claimSeat(limit)) {
+            synchronized (this) {
+                if (enrolledStudentIds.add(studentId)) {
+                    // A concurrent request for the same student may have queued them after the claim.
+                    if (waitlist.remove(studentId)) {
+                        seats.addAndGet(-ONE_WAITING);
+                    }
+                    return EnrollmentOutcome.ENROLLED;
+                }
+            }
+            seats.decrementAndGet();
+            return EnrollmentOutcome.ALREADY_ENROLLED;
+        }
+        synchronized (this) {
+            if (enrolledStudentIds.contains(studentId)) {
+                return EnrollmentOutcome.ALREADY_ENROLLED;
+            }
+            if (waitlist.contains(studentId)) {
+                return EnrollmentOutcome.WAITLISTED;
+            }
+            if (claimSeatOrWait(limit)) {
+                enrolledStudentIds.add(studentId);
+                return EnrollmentOutcome.ENROLLED;
+            }
+            waitlist.add(studentId);
+            return EnrollmentOutcome.WAITLISTED;
+        }
+    }
+
+    /**
+     * Drops a student, or takes them off the waitlist. A freed seat is handed straight to the head of the
+     * waitlist unless the course is above its limit, so newcomers cannot overtake waiting students.
+     *
+     * @param studentId student identifier
+     * @param limit     seat limit in force
+     * @return promoted student, or null when nobody was promoted
+     */
+    public synchronized String drop(String studentId, int limit) {
+        if (!enrolledStudentIds.remove(studentId)) {
+            if (waitlist.remove(studentId)) {
+                seats.addAndGet(-ONE_WAITING);
+            }
+            return null;
+        }
+        if (waitlist.isEmpty() || getSeatsTaken() > limit) {
+            seats.decrementAndGet();
+            return null;
+        }
+        Iterator<String> head = waitlist.iterator();
+        String promoted = head.next();
+        head.remove();
+        enrolledStudentIds.add(promoted);
+        seats.addAndGet(-ONE_WAITING);
+        return promoted;
+    }
+
+    /**
+     * Moves waiting students in while seats are free, e.g. after the limit was raised.
+     *
+     * @param limit seat limit in force
+     * @return promoted students in waitlist order
+     */
+    public synchronized List<String> promote(int limit) {
+        List<String> promoted = new ArrayList<>();
+        Iterator<String> head = waitlist.iterator();
+        while (head.hasNext() && promoteSeat(limit)) {
+            String next = head.next();
+            head.remove();
+            enrolledStudentIds.add(next);
+            promoted.add(next);
+        }
+        return promoted;
+    }
+
+    /**
+     * Fast path: takes a free seat only while the waitlist is empty.
+     */
+    private boolean claimSeat(int limit) {
+        while (true) {
+            long state = seats.get();
+            if (waiting(state) > 0 || taken(state) >= limit) {
+                return false;
+            }
+            if (seats.compareAndSet(state, state + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Takes a free seat, or counts the caller as waiting, in one step so no fast-path claim can slip in
+     * between the check and the enqueue. Called with the monitor held.
+     */
+    private boolean claimSeatOrWait(int limit) {
+        while (true) {
+            long state = seats.get();
+            boolean claim = waiting(state) == 0 && taken(state) < limit;
+            if (seats.compareAndSet(state, state + (claim ? 1 : ONE_WAITING))) {
+                return claim;
+            }
+        }
+    }
+
+    /**
+     * Turns one waiting student into a seat holder if a seat is free. Called with the monitor held.
+     */
+    private boolean promoteSeat(int limit) {
+        while (true) {
+            long state = seats.get();
+            if (taken(state) >= limit) {
+                return false;
+            }
+            if (seats.compareAndSet(state, state + 1 - ONE_WAITING)) {
+                return true;
+            }
+        }
     }
 
-    public void enrollStudent(String studentId) {
-        if (!enrolledStudentIds.contains(studentId)) {
-            enrolledStudentIds.add(studentId);
+    private void restoreWaitlist(Collection<String> studentIds) {
+        for (String studentId : studentIds) {
+            if (!enrolledStudentIds.contains(studentId) && waitlist.add(studentId)) {
+                seats.addAndGet(ONE_WAITING);
+            }
         }
     }
 
-    public void dropStudent(String studentId) {
-        enrolledStudentIds.remove(studentId);
+    private static int taken(long state) {
+        return (int) state;
+    }
+
+    private static int waiting(long state) {
+        return (int) (state >>> 32);
     }
 
     public String toJSON() {
-        return "{" + "\"courseId\":" + JsonUtils.quote(courseId) + ","
-                + "\"title\":" + JsonUtils.quote(title) + ","
-                + "\"credits\":" + credits + ","
-                + "\"instructorId\":" + JsonUtils.quote(instructorId) + ","
-                + "\"roomId\":" + JsonUtils.quote(roomId) + ","
-                + "\"enrolledStudentIds\":" + JsonUtils.toStringArray(enrolledStudentIds)
-                + "}";
-    }
-
-    public static Course fromJSON(String json) {
-        Map<String, String> values = JsonUtils.parseJsonObject(json);
-        String id = JsonUtils.unquote(values.get("courseId"));
-        String title = JsonUtils.unquote(values.get("title"));
-        int credits = Integer.parseInt(values.get("credits"));
-        String instructor = JsonUtils.unquote(values.get("instructorId"));
-        String room = JsonUtils.unquote(values.get("roomId"));
-        List<String> students = JsonUtils.parseStringArray(values.get("enrolledStudentIds"));
-        return new Course(id, title, credits, instructor, room, students);
+        return JsonWriter.stringify(this::writeJSON);
+    }
+
+    public synchronized void writeJSON(JsonWriter writer) {
+        writer.beginObject()
+                .name("courseId").value(courseId)
+                .name("title").value(title)
+                .name("credits").value(credits)
+                .name("instructorId").value(instructorId)
+                .name("roomId").value(roomId)
+                .name("enrolledStudentIds").stringArray(enrolledStudentIds)
+                .name("waitlistStudentIds").stringArray(waitlist);
+        if (seatLimit != null) {
+            writer.name("seatLimit").value(seatLimit.intValue());
+        }
+        writer.endObject();
+    }
+
+    public static Course fromJSON(CharSequence json) {
+        JsonCursor cursor = new JsonCursor(json);
+        String id = null;
+        String title = null;
+        int credits = 0;
+        String instructor = null;
+        String room = null;
+        List<String> students = null;
+        List<String> waiting = List.of();
+        Integer seatLimit = null;
+        while (cursor.nextField()) {
+            if (cursor.nameIs("courseId")) {
+                id = cursor.readString();
+            } else if (cursor.nameIs("title")) {
+                title = cursor.readString();
+            } else if (cursor.nameIs("credits")) {
+                credits = cursor.readInt();
+            } else if (cursor.nameIs("instructorId")) {
+                instructor = cursor.readString();
+            } else if (cursor.nameIs("roomId")) {
+                room = cursor.readString();
+            } else if (cursor.nameIs("enrolledStudentIds")) {
+                students = cursor.readStringArray();
+            } else if (cursor.nameIs("waitlistStudentIds")) {
+                waiting = cursor.readStringArray();
+            } else if (cursor.nameIs("seatLimit")) {
+                seatLimit = cursor.readInt();
+            }
+        }
+        Course course = new Course(id, title, credits, instructor, room, students);
+        course.restoreWaitlist(waiting);
+        course.seatLimit = seatLimit;
+        return course;
+    }
+
+    public synchronized void writeBinary(BinaryWriter writer) {
+        writer.value(courseId).value(title).value(credits).value(instructorId).value(roomId)
+                .strings(enrolledStudentIds)
+                .strings(waitlist)
+                .value(seatLimit != null);
+        if (seatLimit != null) {
+            writer.value(seatLimit.intValue());
+        }
+    }
+
+    public static Course fromBinary(BinaryReader reader) {
+        Course course = new Course(reader.readString(), reader.readString(), reader.readInt(), reader.readString(),
+                reader.readString(), reader.readStrings());
+        course.restoreWaitlist(reader.readStrings());
+        course.seatLimit = reader.readBoolean() ? reader.readInt() : null;
+        return course;
     }
 
     @Override
@@ -0,0 +1,12 @@
+package scrms.model;
+
+/**
+ * Result of enrolling one student in a bulk enrollment.
+ */
+public enum EnrollmentOutcome {
+    ENROLLED,
+    ALREADY_ENROLLED,
+    WAITLISTED,
+    STUDENT_NOT_FOUND,
+    COURSE_NOT_FOUND
+}
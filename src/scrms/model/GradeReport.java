@@ -1,9 +1,11 @@
 package scrms.model;
 
+import scrms.utils.BinaryReader;
+import scrms.utils.BinaryWriter;
 import scrms.utils.IdGenerator;
-import scrms.utils.JsonUtils;
+import scrms.utils.JsonCursor;
+import scrms.utils.JsonWriter;
 
-import java.util.Map;
 
 /**
  * Represents the grading outcome for a student inside a course.
@@ -76,22 +78,52 @@ public class GradeReport {
     }
 
     public String toJSON() {
-        return "{" + "\"reportId\":" + JsonUtils.quote(reportId) + ","
-                + "\"studentId\":" + JsonUtils.quote(studentId) + ","
-                + "\"courseId\":" + JsonUtils.quote(courseId) + ","
-                + "\"score\":" + score + ","
-                + "\"letterGrade\":" + JsonUtils.quote(letterGrade) + ","
-                + "\"remarks\":" + JsonUtils.quote(remarks) + "}";
-    }
-
-    public static GradeReport fromJSON(String json) {
-        Map<String, String> values = JsonUtils.parseJsonObject(json);
-        String id = JsonUtils.unquote(values.get("reportId"));
-        String studentId = JsonUtils.unquote(values.get("studentId"));
-        String courseId = JsonUtils.unquote(values.get("courseId"));
-        double score = Double.parseDouble(values.get("score"));
-        String letter = JsonUtils.unquote(values.get("letterGrade"));
-        String remarks = JsonUtils.unquote(values.get("remarks"));
+        return JsonWriter.stringify(this::writeJSON);
+    }
+
+    public void writeJSON(JsonWriter writer) {
+        writer.beginObject()
+                .name("reportId").value(reportId)
+                .name("studentId").value(studentId)
+                .name("courseId").value(courseId)
+                .name("score").value(score)
+                .name("letterGrade").value(letterGrade)
+                .name("remarks").value(remarks)
+                .endObject();
+    }
+
+    public static GradeReport fromJSON(CharSequence json) {
+        JsonCursor cursor = new JsonCursor(json);
+        String id = null;
+        String studentId = null;
+        String courseId = null;
+        double score = 0;
+        String letter = null;
+        String remarks = null;
+        while (cursor.nextField()) {
+            if (cursor.nameIs("reportId")) {
+                id = cursor.readString();
+            } else if (cursor.nameIs("studentId")) {
+                studentId = cursor.readString();
+            } else if (cursor.nameIs("courseId")) {
+                courseId = cursor.readString();
+            } else if (cursor.nameIs("score")) {
+                score = cursor.readDouble();
+            } else if (cursor.nameIs("letterGrade")) {
+                letter = cursor.readString();
+            } else if (cursor.nameIs("remarks")) {
+                remarks = cursor.readString();
+            }
+        }
         return new GradeReport(id, studentId, courseId, score, letter, remarks);
     }
+
+    public void writeBinary(BinaryWriter writer) {
+        writer.value(reportId).value(studentId).value(courseId).value(score).value(letterGrade).value(remarks);
+    }
+
+    public static GradeReport fromBinary(BinaryReader reader) {
+        return new GradeReport(reader.readString(), reader.readString(), reader.readString(), reader.readDouble(),
+                reader.readString(), reader.readString());
+    }
 }
@@ -1,11 +1,13 @@
 package scrms.model;
 
+import scrms.utils.BinaryReader;
+import scrms.utils.BinaryWriter;
 import scrms.utils.IdGenerator;
-import scrms.utils.JsonUtils;
+import scrms.utils.JsonCursor;
+import scrms.utils.JsonWriter;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Represents instructors that can teach courses.
@@ -58,38 +60,66 @@ public class Instructor {
         this.email = email;
     }
 
-    public List<String> getCourseIds() {
+    public synchronized List<String> getCourseIds() {
         return new ArrayList<>(courseIds);
     }
 
-    public void assignCourse(String courseId) {
+    public synchronized void assignCourse(String courseId) {
         if (!courseIds.contains(courseId)) {
             courseIds.add(courseId);
         }
     }
 
-    public void unassignCourse(String courseId) {
+    public synchronized void unassignCourse(String courseId) {
         courseIds.remove(courseId);
     }
 
     public String toJSON() {
-        return "{" + "\"instructorId\":" + JsonUtils.quote(instructorId) + ","
-                + "\"fullName\":" + JsonUtils.quote(fullName) + ","
-                + "\"department\":" + JsonUtils.quote(department) + ","
-                + "\"email\":" + JsonUtils.quote(email) + ","
-                + "\"courseIds\":" + JsonUtils.toStringArray(courseIds) + "}";
-    }
-
-    public static Instructor fromJSON(String json) {
-        Map<String, String> values = JsonUtils.parseJsonObject(json);
-        String id = JsonUtils.unquote(values.get("instructorId"));
-        String fullName = JsonUtils.unquote(values.get("fullName"));
-        String dept = JsonUtils.unquote(values.get("department"));
-        String email = JsonUtils.unquote(values.get("email"));
-        List<String> courses = JsonUtils.parseStringArray(values.get("courseIds"));
+        return JsonWriter.stringify(this::writeJSON);
+    }
+
+    public synchronized void writeJSON(JsonWriter writer) {
+        writer.beginObject()
+                .name("instructorId").value(instructorId)
+                .name("fullName").value(fullName)
+                .name("department").value(department)
+                .name("email").value(email)
+                .name("courseIds").stringArray(courseIds)
+                .endObject();
+    }
+
+    public static Instructor fromJSON(CharSequence json) {
+        JsonCursor cursor = new JsonCursor(json);
+        String id = null;
+        String fullName = null;
+        String dept = null;
+        String email = null;
+        List<String> courses = null;
+        while (cursor.nextField()) {
+            if (cursor.nameIs("instructorId")) {
+                id = cursor.readString();
+            } else if (cursor.nameIs("fullName")) {
+                fullName = cursor.readString();
+            } else if (cursor.nameIs("department")) {
+                dept = cursor.readString();
+            } else if (cursor.nameIs("email")) {
+                email = cursor.readString();
+            } else if (cursor.nameIs("courseIds")) {
+                courses = cursor.readStringArray();
+            }
+        }
         return new Instructor(id, fullName, dept, email, courses);
     }
 
+    public synchronized void writeBinary(BinaryWriter writer) {
+        writer.value(instructorId).value(fullName).value(department).value(email).strings(courseIds);
+    }
+
+    public static Instructor fromBinary(BinaryReader reader) {
+        return new Instructor(reader.readString(), reader.readString(), reader.readString(), reader.readString(),
+                reader.readStrings());
+    }
+
     @Override
     public String toString() {
         return "Instructor{" +
@@ -0,0 +1,25 @@
+package scrms.model;
+
+/**
+ * Repetition rule of a room booking.
+ */
+public enum Recurrence {
+    NONE(0),
+    WEEKLY(7),
+    BIWEEKLY(14);
+
+    private final int stepDays;
+
+    Recurrence(int stepDays) {
+        this.stepDays = stepDays;
+    }
+
+    /**
+     * Returns the number of days between two occurrences.
+     *
+     * @return step in days, 0 for a single booking
+     */
+    public int getStepDays() {
+        return stepDays;
+    }
+}
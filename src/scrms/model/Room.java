@@ -1,9 +1,11 @@
 package scrms.model;
 
+import scrms.utils.BinaryReader;
+import scrms.utils.BinaryWriter;
 import scrms.utils.IdGenerator;
-import scrms.utils.JsonUtils;
+import scrms.utils.JsonCursor;
+import scrms.utils.JsonWriter;
 
-import java.util.Map;
 
 /**
  * Represents a physical room that can host courses and events.
@@ -55,21 +57,46 @@ public class Room {
     }
 
     public String toJSON() {
-        return "{" + "\"roomId\":" + JsonUtils.quote(roomId) + ","
-                + "\"name\":" + JsonUtils.quote(name) + ","
-                + "\"capacity\":" + capacity + ","
-                + "\"type\":" + JsonUtils.quote(type.name()) + "}";
+        return JsonWriter.stringify(this::writeJSON);
     }
 
-    public static Room fromJSON(String json) {
-        Map<String, String> map = JsonUtils.parseJsonObject(json);
-        String id = JsonUtils.unquote(map.get("roomId"));
-        String name = JsonUtils.unquote(map.get("name"));
-        int capacity = Integer.parseInt(map.get("capacity"));
-        RoomType type = RoomType.valueOf(JsonUtils.unquote(map.get("type")));
+    public void writeJSON(JsonWriter writer) {
+        writer.beginObject()
+                .name("roomId").value(roomId)
+                .name("name").value(name)
+                .name("capacity").value(capacity)
+                .name("type").value(type)
+                .endObject();
+    }
+
+    public static Room fromJSON(CharSequence json) {
+        JsonCursor cursor = new JsonCursor(json);
+        String id = null;
+        String name = null;
+        int capacity = 0;
+        RoomType type = null;
+        while (cursor.nextField()) {
+            if (cursor.nameIs("roomId")) {
+                id = cursor.readString();
+            } else if (cursor.nameIs("name")) {
+                name = cursor.readString();
+            } else if (cursor.nameIs("capacity")) {
+                capacity = cursor.readInt();
+            } else if (cursor.nameIs("type")) {
+                type = cursor.readEnum(RoomType.class);
+            }
+        }
         return new Room(id, name, capacity, type);
     }
 
+    public void writeBinary(BinaryWriter writer) {
+        writer.value(roomId).value(name).value(capacity).value(type);
+    }
+
+    public static Room fromBinary(BinaryReader reader) {
+        return new Room(reader.readString(), reader.readString(), reader.readInt(), reader.readEnum(RoomType.class));
+    }
+
     @Override
     public String toString() {
         return "Room{" +
@@ -1,14 +1,27 @@
 package scrms.model;
 
+import scrms.utils.BinaryReader;
+import scrms.utils.BinaryWriter;
 import scrms.utils.IdGenerator;
-import scrms.utils.JsonUtils;
+import scrms.utils.JsonCursor;
+import scrms.utils.JsonWriter;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
-import java.util.Map;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * Booking request for a room on a specific date and time window.
+ * <p>
+ * A recurring booking is stored as one rule: the first date, a {@link Recurrence}, an inclusive end
+ * date and the dates that are skipped. Occurrences are tested with {@link #occursOn(LocalDate)} and only
+ * expanded into a list by {@link #occurrences()}.
  */
 public class RoomBooking {
 
@@ -20,6 +33,9 @@ public class RoomBooking {
     private LocalTime startTime;
     private LocalTime endTime;
     private BookingStatus status;
+    private Recurrence recurrence = Recurrence.NONE;
+    private LocalDate untilDate;
+    private final Set<LocalDate> exceptions = new TreeSet<>();
 
     public RoomBooking(String bookingId, String roomId, String requester, String purpose,
                        LocalDate date, LocalTime startTime, LocalTime endTime, BookingStatus status) {
@@ -38,6 +54,17 @@ public class RoomBooking {
         return new RoomBooking(IdGenerator.newId("RBK"), roomId, requester, purpose, date, startTime, endTime, BookingStatus.PENDING);
     }
 
+    public static RoomBooking createRecurring(String roomId, String requester, String purpose, LocalDate firstDate,
+                                              LocalTime startTime, LocalTime endTime, Recurrence recurrence,
+                                              LocalDate untilDate, Collection<LocalDate> exceptions) {
+        RoomBooking booking = create(roomId, requester, purpose, firstDate, startTime, endTime);
+        booking.setRecurrence(recurrence, untilDate);
+        if (exceptions != null) {
+            booking.exceptions.addAll(exceptions);
+        }
+        return booking;
+    }
+
     public String getBookingId() {
         return bookingId;
     }
@@ -90,6 +117,89 @@ public class RoomBooking {
         this.endTime = endTime;
     }
 
+    public Recurrence getRecurrence() {
+        return recurrence;
+    }
+
+    /**
+     * Sets the repetition rule.
+     *
+     * @param recurrence repetition, null for a single booking
+     * @param untilDate  last date an occurrence may fall on, ignored for a single booking
+     */
+    public void setRecurrence(Recurrence recurrence, LocalDate untilDate) {
+        this.recurrence = recurrence == null ? Recurrence.NONE : recurrence;
+        this.untilDate = this.recurrence == Recurrence.NONE ? null : untilDate;
+    }
+
+    public LocalDate getUntilDate() {
+        return untilDate;
+    }
+
+    public boolean isRecurring() {
+        return recurrence != Recurrence.NONE;
+    }
+
+    /**
+     * Returns the last date the booking may occur on.
+     *
+     * @return end date of the rule, or the booking date for a single booking
+     */
+    public LocalDate getLastDate() {
+        return isRecurring() ? untilDate : date;
+    }
+
+    /**
+     * Returns the skipped dates.
+     *
+     * @return read-only copy, in date order
+     */
+    public synchronized Set<LocalDate> getExceptions() {
+        return Collections.unmodifiableSet(new TreeSet<>(exceptions));
+    }
+
+    /**
+     * Skips one occurrence of a recurring booking.
+     *
+     * @param skipped date to skip
+     * @return true when the date was not skipped before
+     */
+    public synchronized boolean addException(LocalDate skipped) {
+        return exceptions.add(skipped);
+    }
+
+    /**
+     * Checks whether the booking takes place on a date.
+     *
+     * @param day date to test
+     * @return true when an occurrence falls on the date
+     */
+    public synchronized boolean occursOn(LocalDate day) {
+        if (day.isBefore(date) || day.isAfter(getLastDate()) || exceptions.contains(day)) {
+            return false;
+        }
+        return !isRecurring() || ChronoUnit.DAYS.between(date, day) % recurrence.getStepDays() == 0;
+    }
+
+    /**
+     * Expands the booking into the dates it takes place on.
+     *
+     * @return occurrence dates in order
+     */
+    public synchronized List<LocalDate> occurrences() {
+        List<LocalDate> dates = new ArrayList<>();
+        if (!isRecurring()) {
+            dates.add(date);
+            return dates;
+        }
+        for (LocalDate day = date; !day.isAfter(untilDate); day = day.plusDays(recurrence.getStepDays())) {
+            if (!exceptions.contains(day)) {
+                dates.add(day);
+            }
+        }
+        return dates;
+    }
+
     public BookingStatus getStatus() {
         return status;
     }
@@ -99,27 +209,94 @@ public class RoomBooking {
     }
 
     public String toJSON() {
-        return "{" + "\"bookingId\":" + JsonUtils.quote(bookingId) + ","
-                + "\"roomId\":" + JsonUtils.quote(roomId) + ","
-                + "\"requester\":" + JsonUtils.quote(requester) + ","
-                + "\"purpose\":" + JsonUtils.quote(purpose) + ","
-                + "\"date\":" + JsonUtils.quote(date.toString()) + ","
-                + "\"startTime\":" + JsonUtils.quote(startTime.toString()) + ","
-                + "\"endTime\":" + JsonUtils.quote(endTime.toString()) + ","
-                + "\"status\":" + JsonUtils.quote(status.name())
-                + "}";
-    }
-
-    public static RoomBooking fromJSON(String json) {
-        Map<String, String> values = JsonUtils.parseJsonObject(json);
-        String id = JsonUtils.unquote(values.get("bookingId"));
-        String roomId = JsonUtils.unquote(values.get("roomId"));
-        String requester = JsonUtils.unquote(values.get("requester"));
-        String purpose = JsonUtils.unquote(values.get("purpose"));
-        LocalDate date = LocalDate.parse(JsonUtils.unquote(values.get("date")));
-        LocalTime start = LocalTime.parse(JsonUtils.unquote(values.get("startTime")));
-        LocalTime end = LocalTime.parse(JsonUtils.unquote(values.get("endTime")));
-        BookingStatus status = BookingStatus.valueOf(JsonUtils.unquote(values.get("status")));
-        return new RoomBooking(id, roomId, requester, purpose, date, start, end, status);
+        return JsonWriter.stringify(this::writeJSON);
+    }
+
+    public synchronized void writeJSON(JsonWriter writer) {
+        writer.beginObject()
+                .name("bookingId").value(bookingId)
+                .name("roomId").value(roomId)
+                .name("requester").value(requester)
+                .name("purpose").value(purpose)
+                .name("date").value(date)
+                .name("startTime").value(startTime)
+                .name("endTime").value(endTime)
+                .name("status").value(status);
+        if (isRecurring()) {
+            writer.name("recurrence").value(recurrence)
+                    .name("untilDate").value(untilDate)
+                    .name("exceptions").beginArray();
+            for (LocalDate skipped : exceptions) {
+                writer.value(skipped);
+            }
+            writer.endArray();
+        }
+        writer.endObject();
+    }
+
+    public static RoomBooking fromJSON(CharSequence json) {
+        JsonCursor cursor = new JsonCursor(json);
+        String id = null;
+        String roomId = null;
+        String requester = null;
+        String purpose = null;
+        LocalDate date = null;
+        LocalTime start = null;
+        LocalTime end = null;
+        BookingStatus status = null;
+        Recurrence recurrence = null;
+        LocalDate until = null;
+        List<String> exceptions = List.of();
+        while (cursor.nextField()) {
+            if (cursor.nameIs("bookingId")) {
+                id = cursor.readString();
+            } else if (cursor.nameIs("roomId")) {
+                roomId = cursor.readString();
+            } else if (cursor.nameIs("requester")) {
+                requester = cursor.readString();
+            } else if (cursor.nameIs("purpose")) {
+                purpose = cursor.readString();
+            } else if (cursor.nameIs("date")) {
+                date = cursor.readLocalDate();
+            } else if (cursor.nameIs("startTime")) {
+                start = cursor.readLocalTime();
+            } else if (cursor.nameIs("endTime")) {
+                end = cursor.readLocalTime();
+            } else if (cursor.nameIs("status")) {
+                status = cursor.readEnum(BookingStatus.class);
+            } else if (cursor.nameIs("recurrence")) {
+                recurrence = cursor.readEnum(Recurrence.class);
+            } else if (cursor.nameIs("untilDate")) {
+                until = cursor.readLocalDate();
+            } else if (cursor.nameIs("exceptions")) {
+                exceptions = cursor.readStringArray();
+            }
+        }
+        RoomBooking booking = new RoomBooking(id, roomId, requester, purpose, date, start, end, status);
+        booking.setRecurrence(recurrence, until);
+        for (String skipped : exceptions) {
+            booking.exceptions.add(LocalDate.parse(skipped));
+        }
+        return booking;
+    }
+
+    public synchronized void writeBinary(BinaryWriter writer) {
+        writer.value(bookingId).value(roomId).value(requester).value(purpose)
+                .value(date).value(startTime).value(endTime).value(status)
+                .value(recurrence).value(untilDate).value(exceptions.size());
+        for (LocalDate skipped : exceptions) {
+            writer.value(skipped);
+        }
+    }
+
+    public static RoomBooking fromBinary(BinaryReader reader) {
+        RoomBooking booking = new RoomBooking(reader.readString(), reader.readString(), reader.readString(),
+                reader.readString(), reader.readLocalDate(), reader.readLocalTime(), reader.readLocalTime(),
+                reader.readEnum(BookingStatus.class));
+        booking.setRecurrence(reader.readEnum(Recurrence.class), reader.readLocalDate());
+        for (int i = reader.readInt(); i > 0; i--) {
+            booking.exceptions.add(reader.readLocalDate());
+        }
+        return booking;
     }
 }
@@ -1,11 +1,13 @@
 package scrms.model;
 
+import scrms.utils.BinaryReader;
+import scrms.utils.BinaryWriter;
 import scrms.utils.IdGenerator;
-import scrms.utils.JsonUtils;
+import scrms.utils.JsonCursor;
+import scrms.utils.JsonWriter;
 
 import java.time.DayOfWeek;
 import java.time.LocalTime;
-import java.util.Map;
 
 /**
  * Represents a scheduled block for a course.
@@ -79,26 +81,55 @@ public class ScheduleSlot {
     }
 
     public String toJSON() {
-        return "{" + "\"slotId\":" + JsonUtils.quote(slotId) + ","
-                + "\"courseId\":" + JsonUtils.quote(courseId) + ","
-                + "\"roomId\":" + JsonUtils.quote(roomId) + ","
-                + "\"dayOfWeek\":" + JsonUtils.quote(dayOfWeek.name()) + ","
-                + "\"startTime\":" + JsonUtils.quote(startTime.toString()) + ","
-                + "\"endTime\":" + JsonUtils.quote(endTime.toString())
-                + "}";
-    }
-
-    public static ScheduleSlot fromJSON(String json) {
-        Map<String, String> values = JsonUtils.parseJsonObject(json);
-        String slotId = JsonUtils.unquote(values.get("slotId"));
-        String courseId = JsonUtils.unquote(values.get("courseId"));
-        String roomId = JsonUtils.unquote(values.get("roomId"));
-        DayOfWeek day = DayOfWeek.valueOf(JsonUtils.unquote(values.get("dayOfWeek")));
-        LocalTime start = LocalTime.parse(JsonUtils.unquote(values.get("startTime")));
-        LocalTime end = LocalTime.parse(JsonUtils.unquote(values.get("endTime")));
+        return JsonWriter.stringify(this::writeJSON);
+    }
+
+    public void writeJSON(JsonWriter writer) {
+        writer.beginObject()
+                .name("slotId").value(slotId)
+                .name("courseId").value(courseId)
+                .name("roomId").value(roomId)
+                .name("dayOfWeek").value(dayOfWeek)
+                .name("startTime").value(startTime)
+                .name("endTime").value(endTime)
+                .endObject();
+    }
+
+    public static ScheduleSlot fromJSON(CharSequence json) {
+        JsonCursor cursor = new JsonCursor(json);
+        String slotId = null;
+        String courseId = null;
+        String roomId = null;
+        DayOfWeek day = null;
+        LocalTime start = null;
+        LocalTime end = null;
+        while (cursor.nextField()) {
+            if (cursor.nameIs("slotId")) {
+                slotId = cursor.readString();
+            } else if (cursor.nameIs("courseId")) {
+                courseId = cursor.readString();
+            } else if (cursor.nameIs("roomId")) {
+                roomId = cursor.readString();
+            } else if (cursor.nameIs("dayOfWeek")) {
+                day = cursor.readEnum(DayOfWeek.class);
+            } else if (cursor.nameIs("startTime")) {
+                start = cursor.readLocalTime();
+            } else if (cursor.nameIs("endTime")) {
+                end = cursor.readLocalTime();
+            }
+        }
         return new ScheduleSlot(slotId, courseId, roomId, day, start, end);
     }
 
+    public void writeBinary(BinaryWriter writer) {
+        writer.value(slotId).value(courseId).value(roomId).value(dayOfWeek).value(startTime).value(endTime);
+    }
+
+    public static ScheduleSlot fromBinary(BinaryReader reader) {
+        return new ScheduleSlot(reader.readString(), reader.readString(), reader.readString(),
+                reader.readEnum(DayOfWeek.class), reader.readLocalTime(), reader.readLocalTime());
+    }
+
     @Override
     public String toString() {
         return "ScheduleSlot{" +
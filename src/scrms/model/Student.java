@@ -1,11 +1,17 @@
 package scrms.model;
 
+import scrms.utils.BinaryReader;
+import scrms.utils.BinaryWriter;
 import scrms.utils.IdGenerator;
-import scrms.utils.JsonUtils;
+import scrms.utils.JsonCursor;
+import scrms.utils.JsonWriter;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 
 /**
  * Represents a student registered in the campus.
@@ -16,14 +22,16 @@ public class Student {
     private String fullName;
     private String department;
     private String email;
-    private final List<String> enrolledCourseIds;
+    private final Set<String> enrolledCourseIds;
+    private final Set<String> enrolledCourseIdsView;
 
-    public Student(String studentId, String fullName, String department, String email, List<String> enrolledCourseIds) {
+    public Student(String studentId, String fullName, String department, String email, Collection<String> enrolledCourseIds) {
         this.studentId = studentId;
         this.fullName = fullName;
         this.department = department;
         this.email = email;
-        this.enrolledCourseIds = enrolledCourseIds != null ? new ArrayList<>(enrolledCourseIds) : new ArrayList<>();
+        this.enrolledCourseIds = enrolledCourseIds != null ? new LinkedHashSet<>(enrolledCourseIds) : new LinkedHashSet<>();
+        this.enrolledCourseIdsView = Collections.unmodifiableSet(this.enrolledCourseIds);
     }
 
     public static Student create(String fullName, String department, String email) {
@@ -58,18 +66,33 @@ public class Student {
         this.email = email;
     }
 
-    public List<String> getEnrolledCourseIds() {
-        return new ArrayList<>(enrolledCourseIds);
+    /**
+     * Returns the enrolled course identifiers in enrollment order.
+     *
+     * @return read-only view that reflects later enrollments and drops
+     */
+    public Set<String> getEnrolledCourseIds() {
+        return enrolledCourseIdsView;
     }
 
-    public void enrollCourse(String courseId) {
-        if (!enrolledCourseIds.contains(courseId)) {
-            enrolledCourseIds.add(courseId);
-        }
+    /**
+     * Records an enrollment in a course; repeated enrollments are ignored.
+     *
+     * @param courseId course identifier
+     * @return true when the course was not enrolled before
+     */
+    public synchronized boolean enrollCourse(String courseId) {
+        return enrolledCourseIds.add(courseId);
     }
 
-    public void dropCourse(String courseId) {
-        enrolledCourseIds.remove(courseId);
+    /**
+     * Drops a course.
+     *
+     * @param courseId course identifier
+     * @return true when the course was enrolled
+     */
+    public synchronized boolean dropCourse(String courseId) {
+        return enrolledCourseIds.remove(courseId);
     }
 
     /**
@@ -78,12 +101,22 @@ public class Student {
      * @return JSON object string
      */
     public String toJSON() {
-        return "{" + "\"studentId\":" + JsonUtils.quote(studentId) + ","
-                + "\"fullName\":" + JsonUtils.quote(fullName) + ","
-                + "\"department\":" + JsonUtils.quote(department) + ","
-                + "\"email\":" + JsonUtils.quote(email) + ","
-                + "\"enrolledCourseIds\":" + JsonUtils.toStringArray(enrolledCourseIds)
-                + "}";
+        return JsonWriter.stringify(this::writeJSON);
+    }
+
+    /**
+     * Streams the student as a JSON object into the provided writer.
+     *
+     * @param writer destination writer
+     */
+    public synchronized void writeJSON(JsonWriter writer) {
+        writer.beginObject()
+                .name("studentId").value(studentId)
+                .name("fullName").value(fullName)
+                .name("department").value(department)
+                .name("email").value(email)
+                .name("enrolledCourseIds").stringArray(enrolledCourseIds)
+                .endObject();
     }
 
     /**
@@ -92,16 +125,49 @@ public class Student {
      * @param json JSON object
      * @return student instance
      */
-    public static Student fromJSON(String json) {
-        Map<String, String> map = JsonUtils.parseJsonObject(json);
-        String id = JsonUtils.unquote(map.get("studentId"));
-        String fullName = JsonUtils.unquote(map.get("fullName"));
-        String department = JsonUtils.unquote(map.get("department"));
-        String email = JsonUtils.unquote(map.get("email"));
-        List<String> courses = JsonUtils.parseStringArray(map.get("enrolledCourseIds"));
+    public static Student fromJSON(CharSequence json) {
+        JsonCursor cursor = new JsonCursor(json);
+        String id = null;
+        String fullName = null;
+        String department = null;
+        String email = null;
+        List<String> courses = null;
+        while (cursor.nextField()) {
+            if (cursor.nameIs("studentId")) {
+                id = cursor.readString();
+            } else if (cursor.nameIs("fullName")) {
+                fullName = cursor.readString();
+            } else if (cursor.nameIs("department")) {
+                department = cursor.readString();
+            } else if (cursor.nameIs("email")) {
+                email = cursor.readString();
+            } else if (cursor.nameIs("enrolledCourseIds")) {
+                courses = cursor.readStringArray();
+            }
+        }
         return new Student(id, fullName, department, email, courses);
     }
 
+    /**
+     * Writes the student's fields in binary form.
+     *
+     * @param writer destination writer
+     */
+    public synchronized void writeBinary(BinaryWriter writer) {
+        writer.value(studentId).value(fullName).value(department).value(email).strings(enrolledCourseIds);
+    }
+
+    /**
+     * Creates a student from fields written by {@link #writeBinary(BinaryWriter)}.
+     *
+     * @param reader source reader
+     * @return student instance
+     */
+    public static Student fromBinary(BinaryReader reader) {
+        return new Student(reader.readString(), reader.readString(), reader.readString(), reader.readString(),
+                reader.readStrings());
+    }
+
     @Override
     public String toString() {
         return "Student{" +
@@ -1,6 +1,6 @@
 package scrms.model;
 
-import scrms.utils.JsonUtils;
+import scrms.utils.JsonWriter;
 import scrms.utils.PasswordUtils;
 
 /**
@@ -49,15 +49,24 @@ public abstract class User {
      *
      * @return JSON string
      */
-    public abstract String toJSON();
+    public String toJSON() {
+        return JsonWriter.stringify(this::writeJSON);
+    }
+
+    /**
+     * Streams the user as a JSON object into the provided writer.
+     *
+     * @param writer destination writer
+     */
+    public abstract void writeJSON(JsonWriter writer);
 
     /**
-     * Helper for subclasses that provides the shared JSON fragment.
+     * Helper for subclasses that writes the shared fields into the current object.
      *
-     * @return JSON fragment with username and password hash
+     * @param writer destination writer positioned inside an object
      */
-    protected String baseJsonFields() {
-        return "\"username\":" + JsonUtils.quote(username)
-                + ",\"passwordHash\":" + JsonUtils.quote(passwordHash);
+    protected void writeBaseFields(JsonWriter writer) {
+        writer.name("username").value(username)
+                .name("passwordHash").value(passwordHash);
     }
 }
@@ -1,6 +1,7 @@
 package scrms.service;
 
 import scrms.data.DataStore;
+import scrms.data.WriteBehindScheduler;
 import scrms.exceptions.ResourceNotFoundException;
 import scrms.model.AttendanceRecord;
 import scrms.model.Course;
@@ -8,40 +9,86 @@ import scrms.model.Student;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
 
 /**
- * Manages attendance records for every course.
+ * Manages attendance records for every course. Records are indexed by student, by course and by date
+ * within each course, so queries cost time proportional to their result rather than to the table.
  */
 public class AttendanceService {
 
     private final DataStore<AttendanceRecord> dataStore;
-    private final List<AttendanceRecord> records;
+    private final IndexedRepository<AttendanceRecord> records;
+    private final SecondaryIndex<AttendanceRecord> byStudent;
+    private final SecondaryIndex<AttendanceRecord> byCourse;
+    private final Map<String, NavigableMap<LocalDate, Map<String, AttendanceRecord>>> byCourseDate;
     private final StudentService studentService;
     private final CourseService courseService;
 
     public AttendanceService(StudentService studentService, CourseService courseService) {
-        this.dataStore = new DataStore<>("attendance.json", AttendanceRecord::fromJSON, AttendanceRecord::toJSON);
-        this.records = new ArrayList<>(dataStore.load());
+        this(studentService, courseService, null);
+        reload();
+    }
+
+    /**
+     * Creates the service without reading its store; call {@link #reload()} before use so that
+     * several services can be loaded concurrently.
+     *
+     * @param studentService student service
+     * @param courseService  course service
+     * @param writeBehind    scheduler coalescing journal writes, or null to write through
+     */
+    public AttendanceService(StudentService studentService, CourseService courseService,
+                             WriteBehindScheduler writeBehind) {
+        this.dataStore = new DataStore<>("attendance.json", AttendanceRecord::fromJSON, AttendanceRecord::writeJSON,
+                AttendanceRecord::getRecordId);
+        this.dataStore.setWriteBehind(writeBehind);
+        this.dataStore.setBinaryCodec(AttendanceRecord::writeBinary, AttendanceRecord::fromBinary);
+        this.dataStore.setMemoryMapped(true);
+        this.dataStore.setParallelLoad(true);
+        this.records = new IndexedRepository<>(AttendanceRecord::getRecordId);
+        this.byStudent = new SecondaryIndex<>(AttendanceRecord::getStudentId, AttendanceRecord::getRecordId);
+        this.byCourse = new SecondaryIndex<>(AttendanceRecord::getCourseId, AttendanceRecord::getRecordId);
+        this.byCourseDate = new HashMap<>();
         this.studentService = studentService;
         this.courseService = courseService;
     }
 
     public List<AttendanceRecord> findAll() {
-        return new ArrayList<>(records);
+        return records.findAll();
     }
 
     public List<AttendanceRecord> findByStudent(String studentId) {
-        return records.stream()
-                .filter(r -> r.getStudentId().equals(studentId))
-                .collect(Collectors.toList());
+        return byStudent.find(studentId);
     }
 
     public List<AttendanceRecord> findByCourse(String courseId) {
-        return records.stream()
-                .filter(r -> r.getCourseId().equals(courseId))
-                .collect(Collectors.toList());
+        return byCourse.find(courseId);
+    }
+
+    /**
+     * Lists the attendance of a course within a date range, ordered by date.
+     *
+     * @param courseId course identifier
+     * @param from     first date, inclusive
+     * @param to       last date, inclusive
+     * @return matching records
+     */
+    public List<AttendanceRecord> findByCourseBetween(String courseId, LocalDate from, LocalDate to) {
+        List<AttendanceRecord> result = new ArrayList<>();
+        NavigableMap<LocalDate, Map<String, AttendanceRecord>> dates = byCourseDate.get(courseId);
+        if (dates == null || from.isAfter(to)) {
+            return result;
+        }
+        for (Map<String, AttendanceRecord> day : dates.subMap(from, true, to, true).values()) {
+            result.addAll(day.values());
+        }
+        return result;
     }
 
     public AttendanceRecord markAttendance(String studentId, String courseId, LocalDate date, boolean present) {
@@ -54,19 +101,42 @@ public class AttendanceService {
             throw new ResourceNotFoundException("Course not found: " + courseId);
         }
         AttendanceRecord record = AttendanceRecord.create(studentId, courseId, date, present);
-        records.add(record);
-        persist();
+        index(record);
+        dataStore.put(record);
         return record;
     }
 
     public void delete(String recordId) {
-        records.removeIf(record -> record.getRecordId().equals(recordId));
-        persist();
+        AttendanceRecord record = records.remove(recordId);
+        if (record != null) {
+            byStudent.remove(record);
+            byCourse.remove(record);
+            NavigableMap<LocalDate, Map<String, AttendanceRecord>> dates = byCourseDate.get(record.getCourseId());
+            if (dates != null && record.getDate() != null) {
+                Map<String, AttendanceRecord> day = dates.get(record.getDate());
+                if (day != null) {
+                    day.remove(recordId);
+                    if (day.isEmpty()) {
+                        dates.remove(record.getDate());
+                    }
+                }
+                if (dates.isEmpty()) {
+                    byCourseDate.remove(record.getCourseId());
+                }
+            }
+            dataStore.remove(recordId);
+        }
     }
 
     public void reload() {
-        records.clear();
-        records.addAll(dataStore.load());
+        List<AttendanceRecord> loaded = dataStore.load();
+        records.replaceAll(loaded);
+        byStudent.rebuild(loaded);
+        byCourse.rebuild(loaded);
+        byCourseDate.clear();
+        for (AttendanceRecord record : loaded) {
+            indexDate(record);
+        }
     }
 
     public void flush() {
@@ -74,6 +144,22 @@ public class AttendanceService {
     }
 
     private void persist() {
-        dataStore.save(records);
+        dataStore.save(records.values());
+    }
+
+    private void index(AttendanceRecord record) {
+        records.add(record);
+        byStudent.add(record);
+        byCourse.add(record);
+        indexDate(record);
+    }
+
+    private void indexDate(AttendanceRecord record) {
+        if (record.getDate() == null) {
+            return;
+        }
+        byCourseDate.computeIfAbsent(record.getCourseId(), id -> new TreeMap<>())
+                .computeIfAbsent(record.getDate(), date -> new LinkedHashMap<>())
+                .put(record.getRecordId(), record);
     }
 }
@@ -1,9 +1,11 @@
 package scrms.service;
 
 import scrms.data.DataStore;
+import scrms.data.WriteBehindScheduler;
 import scrms.exceptions.AuthenticationException;
 import scrms.exceptions.ResourceNotFoundException;
 import scrms.model.Admin;
+import scrms.utils.FsyncPolicy;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -17,13 +19,21 @@ public class AuthenticationService {
     private final List<Admin> admins;
 
     public AuthenticationService() {
-        this.dataStore = new DataStore<>("admins.json", Admin::fromJSON, Admin::toJSON);
-        this.admins = new ArrayList<>(dataStore.load());
-        if (admins.isEmpty()) {
-            Admin defaultAdmin = Admin.create("admin", "admin123", "Default Administrator");
-            admins.add(defaultAdmin);
-            persist();
-        }
+        this(null);
+        reload();
+    }
+
+    /**
+     * Creates the service without reading its store; call {@link #reload()} before use so that
+     * several services can be loaded concurrently.
+     *
+     * @param writeBehind scheduler coalescing journal writes, or null to write through
+     */
+    public AuthenticationService(WriteBehindScheduler writeBehind) {
+        this.dataStore = new DataStore<>("admins.json", Admin::fromJSON, Admin::writeJSON, Admin::getAdminId);
+        this.dataStore.setWriteBehind(writeBehind);
+        this.dataStore.setFsyncPolicy(FsyncPolicy.ALWAYS);
+        this.admins = new ArrayList<>();
     }
 
     public Admin login(String username, String password) {
@@ -41,7 +51,7 @@ public class AuthenticationService {
         }
         Admin admin = Admin.create(username, password, fullName);
         admins.add(admin);
-        persist();
+        dataStore.put(admin);
         return admin;
     }
 
@@ -59,6 +69,11 @@ public class AuthenticationService {
     public void reload() {
         admins.clear();
         admins.addAll(dataStore.load());
+        if (admins.isEmpty()) {
+            Admin defaultAdmin = Admin.create("admin", "admin123", "Default Administrator");
+            admins.add(defaultAdmin);
+            dataStore.put(defaultAdmin);
+        }
     }
 
     public void flush() {
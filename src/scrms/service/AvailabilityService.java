@@ -0,0 +1,147 @@
+package scrms.service;
+
+import scrms.model.AvailabilityWindow;
+import scrms.model.Room;
+import scrms.model.RoomBooking;
+import scrms.model.RoomType;
+import scrms.model.ScheduleSlot;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Answers "which rooms are free" queries over rooms, the timetable and active bookings.
+ * <p>
+ * For every matching room and date the timetable slots and bookings are read from their indexes already
+ * sorted by start time and merged in one sweep; the gaps between busy periods are the free windows.
+ * Because busy periods include their end points, a window starts one minute after a busy period ends and
+ * stops one minute before the next one begins, so any booking inside it passes the conflict checks.
+ */
+public class AvailabilityService {
+
+    /**
+     * Default start of the bookable day.
+     */
+    public static final LocalTime DEFAULT_DAY_START = LocalTime.of(8, 0);
+
+    /**
+     * Default end of the bookable day.
+     */
+    public static final LocalTime DEFAULT_DAY_END = LocalTime.of(20, 0);
+
+    private static final int GAP_SECONDS = 60;
+
+    private final RoomService roomService;
+    private final TimetableService timetableService;
+    private final BookingService bookingService;
+
+    /**
+     * Creates the service.
+     *
+     * @param roomService      room service
+     * @param timetableService timetable service
+     * @param bookingService   booking service
+     */
+    public AvailabilityService(RoomService roomService, TimetableService timetableService,
+                               BookingService bookingService) {
+        this.roomService = roomService;
+        this.timetableService = timetableService;
+        this.bookingService = bookingService;
+    }
+
+    /**
+     * Finds free windows within the default bookable day.
+     *
+     * @param from        first date, inclusive
+     * @param to          last date, inclusive
+     * @param duration    minimum window length in minutes
+     * @param minCapacity minimum room capacity
+     * @param type        required room type, or null for any
+     * @return free windows per room id, rooms without a window are omitted
+     */
+    public Map<String, List<AvailabilityWindow>> findFreeWindows(LocalDate from, LocalDate to, int duration,
+                                                                 int minCapacity, RoomType type) {
+        return findFreeWindows(from, to, duration, minCapacity, type, DEFAULT_DAY_START, DEFAULT_DAY_END);
+    }
+
+    /**
+     * Finds free windows within custom daily hours.
+     *
+     * @param from        first date, inclusive
+     * @param to          last date, inclusive
+     * @param duration    minimum window length in minutes
+     * @param minCapacity minimum room capacity
+     * @param type        required room type, or null for any
+     * @param dayStart    earliest start of a window
+     * @param dayEnd      latest end of a window
+     * @return free windows per room id, rooms without a window are omitted
+     */
+    public Map<String, List<AvailabilityWindow>> findFreeWindows(LocalDate from, LocalDate to, int duration,
+                                                                 int minCapacity, RoomType type,
+                                                                 LocalTime dayStart, LocalTime dayEnd) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("End date must not be before start date");
+        }
+        if (duration <= 0) {
+            throw new IllegalArgumentException("Duration must be positive");
+        }
+        int minimum = duration * 60;
+        Map<String, List<AvailabilityWindow>> result = new LinkedHashMap<>();
+        for (Room room : roomService.findAll()) {
+            if (room.getCapacity() < minCapacity || (type != null && room.getType() != type)) {
+                continue;
+            }
+            List<AvailabilityWindow> windows = new ArrayList<>();
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                collectWindows(room.getRoomId(), date, dayStart.toSecondOfDay(), dayEnd.toSecondOfDay(), minimum,
+                        windows);
+            }
+            if (!windows.isEmpty()) {
+                result.put(room.getRoomId(), windows);
+            }
+        }
+        return result;
+    }
+
+    private void collectWindows(String roomId, LocalDate date, int dayStart, int dayEnd, int minimum,
+                                List<AvailabilityWindow> windows) {
+        List<ScheduleSlot> slots = timetableService.slotsForRoom(roomId, date.getDayOfWeek());
+        List<RoomBooking> bookings = bookingService.findActive(roomId, date);
+        int free = dayStart;
+        int slotIndex = 0;
+        int bookingIndex = 0;
+        while (slotIndex < slots.size() || bookingIndex < bookings.size()) {
+            int busyStart;
+            int busyEnd;
+            boolean takeSlot = bookingIndex >= bookings.size() || (slotIndex < slots.size()
+                    && slots.get(slotIndex).getStartTime().compareTo(bookings.get(bookingIndex).getStartTime()) <= 0);
+            if (takeSlot) {
+                ScheduleSlot slot = slots.get(slotIndex++);
+                busyStart = slot.getStartTime().toSecondOfDay();
+                busyEnd = slot.getEndTime().toSecondOfDay();
+            } else {
+                RoomBooking booking = bookings.get(bookingIndex++);
+                busyStart = booking.getStartTime().toSecondOfDay();
+                busyEnd = booking.getEndTime().toSecondOfDay();
+            }
+            if (busyStart >= dayEnd + GAP_SECONDS) {
+                break;
+            }
+            addWindow(roomId, date, free, Math.min(busyStart - GAP_SECONDS, dayEnd), minimum, windows);
+            free = Math.max(free, busyEnd + GAP_SECONDS);
+        }
+        addWindow(roomId, date, free, dayEnd, minimum, windows);
+    }
+
+    private void addWindow(String roomId, LocalDate date, int start, int end, int minimum,
+                           List<AvailabilityWindow> windows) {
+        if (end - start >= minimum) {
+            windows.add(new AvailabilityWindow(roomId, date, LocalTime.ofSecondOfDay(start),
+                    LocalTime.ofSecondOfDay(end)));
+        }
+    }
+}
@@ -1,40 +1,105 @@
 package scrms.service;
 
 import scrms.data.DataStore;
+import scrms.data.WriteBehindScheduler;
 import scrms.exceptions.BookingConflictException;
 import scrms.exceptions.ResourceNotFoundException;
+import scrms.model.ApprovalOutcome;
 import scrms.model.BookingStatus;
+import scrms.model.Recurrence;
 import scrms.model.Room;
 import scrms.model.RoomBooking;
+import scrms.utils.IntervalIndex;
 import scrms.utils.ValidationUtils;
 
 import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
 
 /**
- * Handles booking of rooms and ensures conflicts are detected.
+ * Handles booking of rooms and ensures conflicts are detected. Active (pending or approved) bookings are
+ * kept in a calendar index per room and date, so an approval only looks at the bookings of that day.
+ * Recurring bookings are indexed once per room and weekday instead of once per occurrence; a conflict
+ * check walks only the calendar dates inside the rule's range and tests the rules of that weekday with
+ * {@link RoomBooking#occursOn(LocalDate)}.
  */
 public class BookingService {
 
     private final DataStore<RoomBooking> dataStore;
-    private final List<RoomBooking> bookings;
+    private final IndexedRepository<RoomBooking> bookings;
+    private final Map<String, NavigableMap<LocalDate, IntervalIndex<RoomBooking>>> calendar;
+    private final Map<String, Map<DayOfWeek, IntervalIndex<RoomBooking>>> weekly;
     private final RoomService roomService;
     private final TimetableService timetableService;
 
     public BookingService(RoomService roomService, TimetableService timetableService) {
-        this.dataStore = new DataStore<>("bookings.json", RoomBooking::fromJSON, RoomBooking::toJSON);
-        this.bookings = new ArrayList<>(dataStore.load());
+        this(roomService, timetableService, null);
+        reload();
+    }
+
+    /**
+     * Creates the service without reading its store; call {@link #reload()} before use so that
+     * several services can be loaded concurrently.
+     *
+     * @param roomService      room service
+     * @param timetableService timetable service
+     * @param writeBehind      scheduler coalescing journal writes, or null to write through
+     */
+    public BookingService(RoomService roomService, TimetableService timetableService,
+                          WriteBehindScheduler writeBehind) {
+        this.dataStore = new DataStore<>("bookings.json", RoomBooking::fromJSON, RoomBooking::writeJSON,
+                RoomBooking::getBookingId);
+        this.dataStore.setWriteBehind(writeBehind);
+        this.dataStore.setBinaryCodec(RoomBooking::writeBinary, RoomBooking::fromBinary);
+        this.bookings = new IndexedRepository<>(RoomBooking::getBookingId);
+        this.calendar = new HashMap<>();
+        this.weekly = new HashMap<>();
         this.roomService = roomService;
         this.timetableService = timetableService;
     }
 
     public List<RoomBooking> findAll() {
-        return new ArrayList<>(bookings);
+        return bookings.findAll();
     }
 
     public RoomBooking findById(String id) {
-        return bookings.stream().filter(b -> b.getBookingId().equals(id)).findFirst().orElse(null);
+        return bookings.findById(id);
+    }
+
+    /**
+     * Lists the pending and approved bookings of a room on a date.
+     *
+     * @param roomId room identifier
+     * @param date   booking date
+     * @return active bookings ordered by start time
+     */
+    public List<RoomBooking> findActive(String roomId, LocalDate date) {
+        IntervalIndex<RoomBooking> day = calendarDay(roomId, date);
+        List<RoomBooking> active = day == null ? new ArrayList<>() : day.values();
+        IntervalIndex<RoomBooking> rules = weeklyDay(roomId, date.getDayOfWeek());
+        if (rules != null) {
+            for (RoomBooking rule : rules.values()) {
+                if (rule.occursOn(date)) {
+                    active.add(rule);
+                }
+            }
+            active.sort(Comparator.comparing(RoomBooking::getStartTime));
+        }
+        return active;
     }
 
     /**
@@ -43,6 +108,27 @@ public class BookingService {
     public RoomBooking requestBooking(String roomId, String requester, String purpose,
                                       java.time.LocalDate date, java.time.LocalTime start,
                                       java.time.LocalTime end) {
+        return requestRecurringBooking(roomId, requester, purpose, date, start, end, Recurrence.NONE, null, null);
+    }
+
+    /**
+     * Requests a recurring booking for approval. The whole series is stored, approved and rejected as one
+     * booking.
+     *
+     * @param roomId     room identifier
+     * @param requester  requester name
+     * @param purpose    purpose of the booking
+     * @param firstDate  date of the first occurrence
+     * @param start      start time of every occurrence
+     * @param end        end time of every occurrence
+     * @param recurrence repetition rule
+     * @param untilDate  last date an occurrence may fall on, required unless the rule is NONE
+     * @param exceptions dates to skip, may be null
+     * @return requested booking
+     */
+    public RoomBooking requestRecurringBooking(String roomId, String requester, String purpose, LocalDate firstDate,
+                                               LocalTime start, LocalTime end, Recurrence recurrence,
+                                               LocalDate untilDate, Collection<LocalDate> exceptions) {
         ValidationUtils.requireText(requester, "Requester name is required");
         Room room = roomService.findById(roomId);
         if (room == null) {
@@ -51,9 +137,15 @@ public class BookingService {
         if (start.isAfter(end)) {
             throw new IllegalArgumentException("Start time must be before end time");
         }
-        RoomBooking booking = RoomBooking.create(roomId, requester, purpose, date, start, end);
+        if (recurrence != null && recurrence != Recurrence.NONE
+                && (untilDate == null || untilDate.isBefore(firstDate))) {
+            throw new IllegalArgumentException("End date must be on or after the first date");
+        }
+        RoomBooking booking = RoomBooking.createRecurring(roomId, requester, purpose, firstDate, start, end,
+                recurrence, untilDate, exceptions);
         bookings.add(booking);
-        persist();
+        addToCalendar(booking);
+        dataStore.put(booking);
         return booking;
     }
 
@@ -63,25 +155,116 @@ public class BookingService {
     public void approve(String bookingId) {
         RoomBooking booking = findByIdOrThrow(bookingId);
         ensureNoConflicts(booking);
+        boolean wasActive = isActive(booking);
         booking.setStatus(BookingStatus.APPROVED);
-        persist();
+        if (!wasActive) {
+            addToCalendar(booking);
+        }
+        dataStore.put(booking);
+    }
+
+    /**
+     * Approves a batch of bookings in one conflict pass and a single persist. Candidates are resolved
+     * first-come in the order given: a booking that conflicts with the timetable, with an active booking
+     * outside the batch or with an earlier approved candidate is rejected. Candidates later in the batch
+     * never block an earlier one, even when they start on an earlier date. Bookings that are already
+     * approved are reported as APPROVED and left untouched; they block candidates like any other
+     * active booking, so a batch never revokes an earlier decision.
+     *
+     * @param bookingIds bookings to approve, in priority order
+     * @return outcome per booking id, in the order given
+     */
+    public Map<String, ApprovalOutcome> approveAll(Collection<String> bookingIds) {
+        Map<String, ApprovalOutcome> outcomes = new LinkedHashMap<>();
+        List<RoomBooking> ordered = new ArrayList<>();
+        Set<String> candidates = new HashSet<>();
+        for (String bookingId : bookingIds) {
+            RoomBooking booking = findById(bookingId);
+            if (booking == null) {
+                outcomes.put(bookingId, ApprovalOutcome.NOT_FOUND);
+                continue;
+            }
+            if (booking.getStatus() == BookingStatus.APPROVED) {
+                outcomes.putIfAbsent(bookingId, ApprovalOutcome.APPROVED);
+            } else if (candidates.add(bookingId)) {
+                outcomes.put(bookingId, null);
+                ordered.add(booking);
+            }
+        }
+        Set<String> accepted = new HashSet<>();
+        for (RoomBooking booking : ordered) {
+            ApprovalOutcome outcome = resolve(booking, candidates, accepted);
+            boolean wasActive = isActive(booking);
+            if (outcome == ApprovalOutcome.APPROVED) {
+                accepted.add(booking.getBookingId());
+                booking.setStatus(BookingStatus.APPROVED);
+                if (!wasActive) {
+                    addToCalendar(booking);
+                }
+            } else {
+                removeFromCalendar(booking);
+                booking.setStatus(BookingStatus.REJECTED);
+            }
+            outcomes.put(booking.getBookingId(), outcome);
+        }
+        dataStore.putAll(ordered);
+        return outcomes;
+    }
+
+    /**
+     * Processes every pending booking through {@link #approveAll(Collection)} in request order.
+     *
+     * @return outcome per booking id
+     */
+    public Map<String, ApprovalOutcome> processQueue() {
+        List<String> queue = new ArrayList<>();
+        for (RoomBooking booking : bookings.values()) {
+            if (booking.getStatus() == BookingStatus.PENDING) {
+                queue.add(booking.getBookingId());
+            }
+        }
+        return approveAll(queue);
+    }
+
+    /**
+     * Skips one occurrence of a recurring booking, freeing the room on that date.
+     *
+     * @param bookingId recurring booking
+     * @param date      occurrence to skip
+     */
+    public void skipOccurrence(String bookingId, LocalDate date) {
+        RoomBooking booking = findByIdOrThrow(bookingId);
+        if (!booking.isRecurring() || !booking.occursOn(date)) {
+            throw new IllegalArgumentException("Booking " + bookingId + " does not occur on " + date);
+        }
+        booking.addException(date);
+        dataStore.put(booking);
     }
 
     public void reject(String bookingId) {
         RoomBooking booking = findByIdOrThrow(bookingId);
+        removeFromCalendar(booking);
         booking.setStatus(BookingStatus.REJECTED);
-        persist();
+        dataStore.put(booking);
     }
 
     public void cancel(String bookingId) {
         RoomBooking booking = findByIdOrThrow(bookingId);
-        bookings.remove(booking);
-        persist();
+        removeFromCalendar(booking);
+        bookings.remove(bookingId);
+        dataStore.remove(bookingId);
     }
 
     public void reload() {
-        bookings.clear();
-        bookings.addAll(dataStore.load());
+        List<RoomBooking> loaded = dataStore.load();
+        bookings.replaceAll(loaded);
+        calendar.clear();
+        weekly.clear();
+        for (RoomBooking booking : loaded) {
+            if (isActive(booking)) {
+                addToCalendar(booking);
+            }
+        }
     }
 
     public void flush() {
@@ -89,24 +272,112 @@ public class BookingService {
     }
 
     private void ensureNoConflicts(RoomBooking booking) {
-        DayOfWeek day = booking.getDate().getDayOfWeek();
-        if (timetableService.hasConflict(booking.getRoomId(), day, booking.getStartTime(), booking.getEndTime())) {
+        if (conflictsWithTimetable(booking)) {
             throw new BookingConflictException("Booking conflicts with the timetable");
         }
-        boolean overlaps = bookings.stream()
-                .filter(b -> !b.getBookingId().equals(booking.getBookingId()))
-                .filter(b -> b.getRoomId().equals(booking.getRoomId()))
-                .filter(b -> b.getDate().equals(booking.getDate()))
-                .filter(b -> b.getStatus() == BookingStatus.APPROVED || b.getStatus() == BookingStatus.PENDING)
-                .anyMatch(b -> overlaps(b, booking));
-        if (overlaps) {
+        if (conflictsWithBookings(booking, other -> true)) {
             throw new BookingConflictException("Booking conflicts with another booking");
         }
     }
 
-    private boolean overlaps(RoomBooking first, RoomBooking second) {
-        return !first.getStartTime().isAfter(second.getEndTime())
-                && !second.getStartTime().isAfter(first.getEndTime());
+    private ApprovalOutcome resolve(RoomBooking booking, Set<String> candidates, Set<String> accepted) {
+        if (conflictsWithTimetable(booking)) {
+            return ApprovalOutcome.REJECTED_TIMETABLE_CONFLICT;
+        }
+        boolean overlaps = conflictsWithBookings(booking, other -> !candidates.contains(other.getBookingId())
+                || accepted.contains(other.getBookingId()));
+        return overlaps ? ApprovalOutcome.REJECTED_BOOKING_CONFLICT : ApprovalOutcome.APPROVED;
+    }
+
+    /**
+     * The timetable repeats weekly and every occurrence of a booking shares the first date's weekday, so a
+     * single check covers the whole series.
+     */
+    private boolean conflictsWithTimetable(RoomBooking booking) {
+        DayOfWeek day = booking.getDate().getDayOfWeek();
+        return timetableService.hasConflict(booking.getRoomId(), day, booking.getStartTime(), booking.getEndTime());
+    }
+
+    private boolean conflictsWithBookings(RoomBooking booking, Predicate<RoomBooking> counts) {
+        int start = booking.getStartTime().toSecondOfDay();
+        int end = booking.getEndTime().toSecondOfDay();
+        Predicate<RoomBooking> others = other -> !other.getBookingId().equals(booking.getBookingId())
+                && counts.test(other);
+        NavigableMap<LocalDate, IntervalIndex<RoomBooking>> dates = calendar.get(booking.getRoomId());
+        if (dates != null) {
+            for (Map.Entry<LocalDate, IntervalIndex<RoomBooking>> day
+                    : dates.subMap(booking.getDate(), true, booking.getLastDate(), true).entrySet()) {
+                if (booking.occursOn(day.getKey()) && day.getValue().overlaps(start, end, others)) {
+                    return true;
+                }
+            }
+        }
+        IntervalIndex<RoomBooking> rules = weeklyDay(booking.getRoomId(), booking.getDate().getDayOfWeek());
+        return rules != null && rules.overlaps(start, end, other -> others.test(other) && sharesDate(booking, other));
+    }
+
+    private static boolean sharesDate(RoomBooking booking, RoomBooking other) {
+        if (!booking.isRecurring()) {
+            return other.occursOn(booking.getDate());
+        }
+        if (!other.isRecurring()) {
+            return booking.occursOn(other.getDate());
+        }
+        LocalDate from = booking.getDate().isAfter(other.getDate()) ? booking.getDate() : other.getDate();
+        LocalDate to = booking.getLastDate().isBefore(other.getLastDate()) ? booking.getLastDate() : other.getLastDate();
+        int step = booking.getRecurrence().getStepDays();
+        long offset = Math.floorMod(ChronoUnit.DAYS.between(booking.getDate(), from), step);
+        for (LocalDate day = offset == 0 ? from : from.plusDays(step - offset); !day.isAfter(to);
+             day = day.plusDays(step)) {
+            if (booking.occursOn(day) && other.occursOn(day)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isActive(RoomBooking booking) {
+        return booking.getStatus() == BookingStatus.APPROVED || booking.getStatus() == BookingStatus.PENDING;
+    }
+
+    private void addToCalendar(RoomBooking booking) {
+        IntervalIndex<RoomBooking> day;
+        if (booking.isRecurring()) {
+            day = weekly.computeIfAbsent(booking.getRoomId(), id -> new EnumMap<>(DayOfWeek.class))
+                    .computeIfAbsent(booking.getDate().getDayOfWeek(), weekday -> new IntervalIndex<>());
+        } else {
+            day = calendar.computeIfAbsent(booking.getRoomId(), id -> new TreeMap<>())
+                    .computeIfAbsent(booking.getDate(), date -> new IntervalIndex<>());
+        }
+        day.add(booking.getStartTime().toSecondOfDay(), booking.getEndTime().toSecondOfDay(), booking);
+    }
+
+    private void removeFromCalendar(RoomBooking booking) {
+        if (booking.isRecurring()) {
+            IntervalIndex<RoomBooking> rules = weeklyDay(booking.getRoomId(), booking.getDate().getDayOfWeek());
+            if (rules != null) {
+                rules.remove(booking);
+            }
+            return;
+        }
+        Map<LocalDate, IntervalIndex<RoomBooking>> dates = calendar.get(booking.getRoomId());
+        IntervalIndex<RoomBooking> day = dates == null ? null : dates.get(booking.getDate());
+        if (day != null && day.remove(booking) && day.isEmpty()) {
+            dates.remove(booking.getDate());
+            if (dates.isEmpty()) {
+                calendar.remove(booking.getRoomId());
+            }
+        }
+    }
+
+    private IntervalIndex<RoomBooking> calendarDay(String roomId, LocalDate date) {
+        Map<LocalDate, IntervalIndex<RoomBooking>> dates = calendar.get(roomId);
+        return dates == null ? null : dates.get(date);
+    }
+
+    private IntervalIndex<RoomBooking> weeklyDay(String roomId, DayOfWeek day) {
+        Map<DayOfWeek, IntervalIndex<RoomBooking>> days = weekly.get(roomId);
+        return days == null ? null : days.get(day);
     }
 
     private RoomBooking findByIdOrThrow(String id) {
@@ -118,6 +389,6 @@ public class BookingService {
     }
 
     private void persist() {
-        dataStore.save(bookings);
+        dataStore.save(bookings.values());
     }
 }
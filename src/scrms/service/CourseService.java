@@ -1,43 +1,68 @@
 package scrms.service;
 
 import scrms.data.DataStore;
+import scrms.data.WriteBehindScheduler;
 import scrms.exceptions.ResourceNotFoundException;
 import scrms.model.Course;
+import scrms.model.EnrollmentOutcome;
 import scrms.model.Instructor;
 import scrms.model.Room;
 import scrms.model.Student;
 import scrms.utils.ValidationUtils;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
- * Handles course lifecycle and enrollment operations.
+ * Handles course lifecycle and enrollment operations. Enrollment respects each course's seat limit,
+ * which defaults to the capacity of the assigned room; students beyond it are waitlisted and promoted
+ * when seats free up. Seats are claimed per course without a service-wide lock, see {@link Course}.
  */
 public class CourseService implements CrudService<Course> {
 
     private final DataStore<Course> dataStore;
-    private final List<Course> courses;
+    private final IndexedRepository<Course> courses;
     private final InstructorService instructorService;
     private final RoomService roomService;
     private final StudentService studentService;
 
     public CourseService(InstructorService instructorService, RoomService roomService, StudentService studentService) {
-        this.dataStore = new DataStore<>("courses.json", Course::fromJSON, Course::toJSON);
-        this.courses = new ArrayList<>(dataStore.load());
+        this(instructorService, roomService, studentService, null);
+        reload();
+    }
+
+    /**
+     * Creates the service without reading its store; call {@link #reload()} before use so that
+     * several services can be loaded concurrently.
+     *
+     * @param instructorService instructor service
+     * @param roomService       room service
+     * @param studentService    student service
+     * @param writeBehind       scheduler coalescing journal writes, or null to write through
+     */
+    public CourseService(InstructorService instructorService, RoomService roomService, StudentService studentService,
+                         WriteBehindScheduler writeBehind) {
+        this.dataStore = new DataStore<>("courses.json", Course::fromJSON, Course::writeJSON, Course::getCourseId);
+        this.dataStore.setWriteBehind(writeBehind);
+        this.dataStore.setBinaryCodec(Course::writeBinary, Course::fromBinary);
+        this.courses = new IndexedRepository<>(Course::getCourseId);
         this.instructorService = instructorService;
         this.roomService = roomService;
         this.studentService = studentService;
+        roomService.addChangeListener(this::roomChanged);
     }
 
     @Override
     public List<Course> findAll() {
-        return new ArrayList<>(courses);
+        return courses.findAll();
     }
 
     @Override
     public Course findById(String id) {
-        return courses.stream().filter(c -> c.getCourseId().equals(id)).findFirst().orElse(null);
+        return courses.findById(id);
     }
 
     @Override
@@ -54,7 +79,7 @@ public class CourseService implements CrudService<Course> {
         if (course.getInstructorId() != null) {
             instructorService.assignCourse(course.getInstructorId(), course.getCourseId());
         }
-        persist();
+        dataStore.put(course);
         return course;
     }
 
@@ -69,11 +94,14 @@ public class CourseService implements CrudService<Course> {
         if (existing == null) {
             throw new ResourceNotFoundException("Course not found: " + course.getCourseId());
         }
-        existing.setTitle(course.getTitle());
-        existing.setCredits(course.getCredits());
         if (course.getInstructorId() != null && instructorService.findById(course.getInstructorId()) == null) {
             throw new ResourceNotFoundException("Instructor not found: " + course.getInstructorId());
         }
+        if (course.getRoomId() != null && roomService.findById(course.getRoomId()) == null) {
+            throw new ResourceNotFoundException("Room not found: " + course.getRoomId());
+        }
+        existing.setTitle(course.getTitle());
+        existing.setCredits(course.getCredits());
         if (existing.getInstructorId() != null && !existing.getInstructorId().equals(course.getInstructorId())) {
             instructorService.unassignCourse(existing.getInstructorId(), existing.getCourseId());
         }
@@ -81,11 +109,9 @@ public class CourseService implements CrudService<Course> {
             instructorService.assignCourse(course.getInstructorId(), existing.getCourseId());
         }
         existing.setInstructorId(course.getInstructorId());
-        if (course.getRoomId() != null && roomService.findById(course.getRoomId()) == null) {
-            throw new ResourceNotFoundException("Room not found: " + course.getRoomId());
-        }
         existing.setRoomId(course.getRoomId());
-        persist();
+        promoteWaitlist(existing);
+        dataStore.put(existing);
         return existing;
     }
 
@@ -101,11 +127,18 @@ public class CourseService implements CrudService<Course> {
         for (String studentId : existing.getEnrolledStudentIds()) {
             studentService.dropFromCourse(studentId, existing.getCourseId());
         }
-        courses.remove(existing);
-        persist();
+        courses.remove(id);
+        dataStore.remove(id);
     }
 
-    public void enrollStudent(String courseId, String studentId) {
+    /**
+     * Enrolls a student, or waitlists them when the course is full.
+     *
+     * @param courseId  course identifier
+     * @param studentId student identifier
+     * @return ENROLLED, ALREADY_ENROLLED or WAITLISTED
+     */
+    public EnrollmentOutcome enrollStudent(String courseId, String studentId) {
         Course course = findById(courseId);
         if (course == null) {
             throw new ResourceNotFoundException("Course not found: " + courseId);
@@ -114,24 +147,185 @@ public class CourseService implements CrudService<Course> {
         if (student == null) {
             throw new ResourceNotFoundException("Student not found: " + studentId);
         }
-        course.enrollStudent(studentId);
-        studentService.enrollInCourse(studentId, courseId);
-        persist();
+        EnrollmentOutcome outcome = course.enroll(studentId, seatLimitOf(course));
+        if (outcome == EnrollmentOutcome.ENROLLED) {
+            studentService.enrollInCourse(studentId, courseId);
+        }
+        if (outcome != EnrollmentOutcome.ALREADY_ENROLLED || promoteWaitlist(course)) {
+            dataStore.put(course);
+        }
+        return outcome;
     }
 
-    public void dropStudent(String courseId, String studentId) {
+    /**
+     * Sets the seat limit of a course and promotes waiting students if seats became free.
+     *
+     * @param courseId  course identifier
+     * @param seatLimit number of seats, or null to use the assigned room's capacity
+     */
+    public void setSeatLimit(String courseId, Integer seatLimit) {
         Course course = findById(courseId);
         if (course == null) {
             throw new ResourceNotFoundException("Course not found: " + courseId);
         }
-        course.dropStudent(studentId);
-        studentService.dropFromCourse(studentId, courseId);
-        persist();
+        if (seatLimit != null) {
+            ValidationUtils.requirePositiveNumber(seatLimit, "Seat limit must be positive");
+        }
+        course.setSeatLimit(seatLimit);
+        promoteWaitlist(course);
+        dataStore.put(course);
+    }
+
+    /**
+     * Returns the seat limit in force for a course.
+     *
+     * @param course course
+     * @return explicit limit, else the assigned room's capacity, else unlimited
+     */
+    public int seatLimitOf(Course course) {
+        if (course.getSeatLimit() != null) {
+            return course.getSeatLimit();
+        }
+        Room room = course.getRoomId() == null ? null : roomService.findById(course.getRoomId());
+        return room == null ? Integer.MAX_VALUE : room.getCapacity();
+    }
+
+    /**
+     * Enrolls many students in one course. See {@link #enrollAll(Map)}.
+     *
+     * @param courseId   course identifier
+     * @param studentIds students to enroll
+     * @return outcome per student id, in the order given
+     */
+    public Map<String, EnrollmentOutcome> enrollAll(String courseId, Collection<String> studentIds) {
+        if (findById(courseId) == null) {
+            throw new ResourceNotFoundException("Course not found: " + courseId);
+        }
+        return enrollAll(Map.of(courseId, studentIds)).get(courseId);
+    }
+
+    /**
+     * Enrolls students in several courses at once. Every course and student is resolved before anything
+     * changes, the enrollments are applied in memory, and the course and student stores are each written
+     * once for the whole batch. Unknown courses and students are reported instead of failing the batch.
+     *
+     * @param studentIdsByCourse students to enroll, per course identifier
+     * @return outcome per student id, per course id
+     */
+    public Map<String, Map<String, EnrollmentOutcome>> enrollAll(
+            Map<String, ? extends Collection<String>> studentIdsByCourse) {
+        Map<String, Course> resolvedCourses = new LinkedHashMap<>();
+        Map<String, Student> resolvedStudents = new LinkedHashMap<>();
+        for (Map.Entry<String, ? extends Collection<String>> entry : studentIdsByCourse.entrySet()) {
+            Course course = findById(entry.getKey());
+            resolvedCourses.put(entry.getKey(), course);
+            if (course != null) {
+                for (String studentId : entry.getValue()) {
+                    if (!resolvedStudents.containsKey(studentId)) {
+                        resolvedStudents.put(studentId, studentService.findById(studentId));
+                    }
+                }
+            }
+        }
+        Map<String, Map<String, EnrollmentOutcome>> outcomes = new LinkedHashMap<>();
+        Map<Student, List<String>> coursesByStudent = new LinkedHashMap<>();
+        List<Course> changed = new ArrayList<>();
+        for (Map.Entry<String, ? extends Collection<String>> entry : studentIdsByCourse.entrySet()) {
+            Course course = resolvedCourses.get(entry.getKey());
+            int limit = course == null ? 0 : seatLimitOf(course);
+            Map<String, EnrollmentOutcome> courseOutcomes = new LinkedHashMap<>();
+            outcomes.put(entry.getKey(), courseOutcomes);
+            boolean courseChanged = false;
+            boolean repeated = false;
+            for (String studentId : entry.getValue()) {
+                Student student = course == null ? null : resolvedStudents.get(studentId);
+                EnrollmentOutcome outcome;
+                if (course == null) {
+                    outcome = EnrollmentOutcome.COURSE_NOT_FOUND;
+                } else if (student == null) {
+                    outcome = EnrollmentOutcome.STUDENT_NOT_FOUND;
+                } else {
+                    outcome = course.enroll(studentId, limit);
+                }
+                if (outcome == EnrollmentOutcome.ENROLLED) {
+                    coursesByStudent.computeIfAbsent(student, s -> new ArrayList<>()).add(course.getCourseId());
+                }
+                courseChanged |= outcome == EnrollmentOutcome.ENROLLED || outcome == EnrollmentOutcome.WAITLISTED;
+                repeated |= outcome == EnrollmentOutcome.ALREADY_ENROLLED;
+                courseOutcomes.putIfAbsent(studentId, outcome);
+            }
+            if (repeated && promoteWaitlist(course)) {
+                courseChanged = true;
+            }
+            if (courseChanged) {
+                changed.add(course);
+            }
+        }
+        studentService.enrollResolved(coursesByStudent);
+        dataStore.putAll(changed);
+        return outcomes;
+    }
+
+    /**
+     * Drops a student, or takes them off the waitlist, and hands a freed seat to the next waiting student.
+     *
+     * @param courseId  course identifier
+     * @param studentId student identifier
+     * @return promoted student, or null when nobody was promoted
+     */
+    public String dropStudent(String courseId, String studentId) {
+        Course course = findById(courseId);
+        if (course == null) {
+            throw new ResourceNotFoundException("Course not found: " + courseId);
+        }
+        Student student = studentService.findById(studentId);
+        if (student == null) {
+            throw new ResourceNotFoundException("Student not found: " + studentId);
+        }
+        String promoted = course.drop(studentId, seatLimitOf(course));
+        studentService.dropResolved(student, courseId);
+        Student next = promoted == null ? null : studentService.findById(promoted);
+        if (next != null) {
+            studentService.enrollResolved(Map.of(next, List.of(courseId)));
+        }
+        dataStore.put(course);
+        return promoted;
+    }
+
+    /**
+     * Promotes waiting students of the courses whose seat limit follows the room's capacity, which stops
+     * limiting them once the room is deleted.
+     */
+    private void roomChanged(Room room) {
+        List<Course> changed = new ArrayList<>();
+        for (Course course : courses.values()) {
+            if (course.getSeatLimit() == null && room.getRoomId().equals(course.getRoomId())
+                    && promoteWaitlist(course)) {
+                changed.add(course);
+            }
+        }
+        if (!changed.isEmpty()) {
+            dataStore.putAll(changed);
+        }
+    }
+
+    private boolean promoteWaitlist(Course course) {
+        List<String> promotedIds = course.promote(seatLimitOf(course));
+        Map<Student, List<String>> promoted = new LinkedHashMap<>();
+        for (String studentId : promotedIds) {
+            Student student = studentService.findById(studentId);
+            if (student != null) {
+                promoted.put(student, List.of(course.getCourseId()));
+            }
+        }
+        if (!promoted.isEmpty()) {
+            studentService.enrollResolved(promoted);
+        }
+        return !promotedIds.isEmpty();
     }
 
     public void reload() {
-        courses.clear();
-        courses.addAll(dataStore.load());
+        courses.replaceAll(dataStore.load());
     }
 
     public void flush() {
@@ -139,6 +333,6 @@ public class CourseService implements CrudService<Course> {
     }
 
     private void persist() {
-        dataStore.save(courses);
+        dataStore.save(courses.values());
     }
 }
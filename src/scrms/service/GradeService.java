@@ -1,46 +1,88 @@
 package scrms.service;
 
 import scrms.data.DataStore;
+import scrms.data.WriteBehindScheduler;
 import scrms.exceptions.ResourceNotFoundException;
 import scrms.model.Course;
 import scrms.model.GradeReport;
 import scrms.model.Student;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
- * Generates and stores grade reports for students.
+ * Generates and stores grade reports for students. Reports are indexed by student, by course and by the
+ * (student, course) pair so lookups and deletes scale with the result instead of the table.
  */
 public class GradeService {
 
     private final DataStore<GradeReport> dataStore;
-    private final List<GradeReport> reports;
+    private final IndexedRepository<GradeReport> reports;
+    private final SecondaryIndex<GradeReport> byStudent;
+    private final SecondaryIndex<GradeReport> byCourse;
+    private final SecondaryIndex<GradeReport> byStudentCourse;
     private final StudentService studentService;
     private final CourseService courseService;
 
     public GradeService(StudentService studentService, CourseService courseService) {
-        this.dataStore = new DataStore<>("grades.json", GradeReport::fromJSON, GradeReport::toJSON);
-        this.reports = new ArrayList<>(dataStore.load());
+        this(studentService, courseService, null);
+        reload();
+    }
+
+    /**
+     * Creates the service without reading its store; call {@link #reload()} before use so that
+     * several services can be loaded concurrently.
+     *
+     * @param studentService student service
+     * @param courseService  course service
+     * @param writeBehind    scheduler coalescing journal writes, or null to write through
+     */
+    public GradeService(StudentService studentService, CourseService courseService, WriteBehindScheduler writeBehind) {
+        this.dataStore = new DataStore<>("grades.json", GradeReport::fromJSON, GradeReport::writeJSON,
+                GradeReport::getReportId);
+        this.dataStore.setWriteBehind(writeBehind);
+        this.dataStore.setBinaryCodec(GradeReport::writeBinary, GradeReport::fromBinary);
+        this.dataStore.setMemoryMapped(true);
+        this.reports = new IndexedRepository<>(GradeReport::getReportId);
+        this.byStudent = new SecondaryIndex<>(GradeReport::getStudentId, GradeReport::getReportId);
+        this.byCourse = new SecondaryIndex<>(GradeReport::getCourseId, GradeReport::getReportId);
+        this.byStudentCourse = new SecondaryIndex<>(
+                report -> pairKey(report.getStudentId(), report.getCourseId()), GradeReport::getReportId);
         this.studentService = studentService;
         this.courseService = courseService;
     }
 
     public List<GradeReport> findAll() {
-        return new ArrayList<>(reports);
+        return reports.findAll();
     }
 
     public List<GradeReport> findByStudent(String studentId) {
-        return reports.stream()
-                .filter(report -> report.getStudentId().equals(studentId))
-                .collect(Collectors.toList());
+        return byStudent.find(studentId);
     }
 
     public List<GradeReport> findByCourse(String courseId) {
-        return reports.stream()
-                .filter(report -> report.getCourseId().equals(courseId))
-                .collect(Collectors.toList());
+        return byCourse.find(courseId);
+    }
+
+    /**
+     * Lists the reports recorded for a student in a course.
+     *
+     * @param studentId student identifier
+     * @param courseId  course identifier
+     * @return matching reports in the order they were recorded
+     */
+    public List<GradeReport> findByStudentAndCourse(String studentId, String courseId) {
+        return byStudentCourse.find(pairKey(studentId, courseId));
+    }
+
+    /**
+     * Checks in constant time whether a student already has a report for a course.
+     *
+     * @param studentId student identifier
+     * @param courseId  course identifier
+     * @return true when a report exists
+     */
+    public boolean hasReport(String studentId, String courseId) {
+        return byStudentCourse.contains(pairKey(studentId, courseId));
     }
 
     public GradeReport recordGrade(String studentId, String courseId, double score, String remarks) {
@@ -55,18 +97,29 @@ public class GradeService {
         String letter = calculateLetter(score);
         GradeReport report = GradeReport.create(studentId, courseId, score, letter, remarks);
         reports.add(report);
-        persist();
+        byStudent.add(report);
+        byCourse.add(report);
+        byStudentCourse.add(report);
+        dataStore.put(report);
         return report;
     }
 
     public void delete(String reportId) {
-        reports.removeIf(report -> report.getReportId().equals(reportId));
-        persist();
+        GradeReport report = reports.remove(reportId);
+        if (report != null) {
+            byStudent.remove(report);
+            byCourse.remove(report);
+            byStudentCourse.remove(report);
+            dataStore.remove(reportId);
+        }
     }
 
     public void reload() {
-        reports.clear();
-        reports.addAll(dataStore.load());
+        List<GradeReport> loaded = dataStore.load();
+        reports.replaceAll(loaded);
+        byStudent.rebuild(loaded);
+        byCourse.rebuild(loaded);
+        byStudentCourse.rebuild(loaded);
     }
 
     public void flush() {
@@ -87,6 +140,10 @@ public class GradeService {
     }
 
     private void persist() {
-        dataStore.save(reports);
+        dataStore.save(reports.values());
+    }
+
+    private static String pairKey(String studentId, String courseId) {
+        return studentId + '|' + courseId;
     }
 }
@@ -0,0 +1,92 @@
+package scrms.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * In-memory entity collection keyed by identifier. Backs the services with O(1) point lookups while
+ * listing still returns entities in insertion order.
+ *
+ * @param <T> entity type
+ */
+public class IndexedRepository<T> {
+
+    private final Map<String, T> entities = new LinkedHashMap<>();
+    private final Function<T, String> idOf;
+
+    /**
+     * Creates an empty repository.
+     *
+     * @param idOf extractor for the entity identifier
+     */
+    public IndexedRepository(Function<T, String> idOf) {
+        this.idOf = idOf;
+    }
+
+    /**
+     * @return copy of all entities in insertion order
+     */
+    public List<T> findAll() {
+        return new ArrayList<>(entities.values());
+    }
+
+    /**
+     * Retrieves an entity by id.
+     *
+     * @param id identifier
+     * @return entity or null
+     */
+    public T findById(String id) {
+        return id == null ? null : entities.get(id);
+    }
+
+    /**
+     * Adds an entity, replacing any entity with the same id in place.
+     *
+     * @param entity entity to store
+     */
+    public void add(T entity) {
+        entities.put(idOf.apply(entity), entity);
+    }
+
+    /**
+     * Removes an entity by id.
+     *
+     * @param id identifier
+     * @return removed entity or null
+     */
+    public T remove(String id) {
+        return entities.remove(id);
+    }
+
+    /**
+     * Replaces the content with freshly loaded entities.
+     *
+     * @param loaded entities read from the store
+     */
+    public void replaceAll(Collection<T> loaded) {
+        entities.clear();
+        for (T entity : loaded) {
+            add(entity);
+        }
+    }
+
+    /**
+     * @return read-only live view of the entities in insertion order
+     */
+    public Collection<T> values() {
+        return Collections.unmodifiableCollection(entities.values());
+    }
+
+    /**
+     * @return number of stored entities
+     */
+    public int size() {
+        return entities.size();
+    }
+}
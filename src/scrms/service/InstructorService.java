@@ -1,11 +1,11 @@
 package scrms.service;
 
 import scrms.data.DataStore;
+import scrms.data.WriteBehindScheduler;
 import scrms.exceptions.ResourceNotFoundException;
 import scrms.model.Instructor;
 import scrms.utils.ValidationUtils;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -14,21 +14,35 @@ import java.util.List;
 public class InstructorService implements CrudService<Instructor> {
 
     private final DataStore<Instructor> dataStore;
-    private final List<Instructor> instructors;
+    private final IndexedRepository<Instructor> instructors;
 
     public InstructorService() {
-        this.dataStore = new DataStore<>("instructors.json", Instructor::fromJSON, Instructor::toJSON);
-        this.instructors = new ArrayList<>(dataStore.load());
+        this(null);
+        reload();
+    }
+
+    /**
+     * Creates the service without reading its store; call {@link #reload()} before use so that
+     * several services can be loaded concurrently.
+     *
+     * @param writeBehind scheduler coalescing journal writes, or null to write through
+     */
+    public InstructorService(WriteBehindScheduler writeBehind) {
+        this.dataStore = new DataStore<>("instructors.json", Instructor::fromJSON, Instructor::writeJSON,
+                Instructor::getInstructorId);
+        this.dataStore.setWriteBehind(writeBehind);
+        this.dataStore.setBinaryCodec(Instructor::writeBinary, Instructor::fromBinary);
+        this.instructors = new IndexedRepository<>(Instructor::getInstructorId);
     }
 
     @Override
     public List<Instructor> findAll() {
-        return new ArrayList<>(instructors);
+        return instructors.findAll();
     }
 
     @Override
     public Instructor findById(String id) {
-        return instructors.stream().filter(i -> i.getInstructorId().equals(id)).findFirst().orElse(null);
+        return instructors.findById(id);
     }
 
     @Override
@@ -36,7 +50,7 @@ public class InstructorService implements CrudService<Instructor> {
         ValidationUtils.requireText(instructor.getFullName(), "Instructor name is required");
         ValidationUtils.requireEmail(instructor.getEmail());
         instructors.add(instructor);
-        persist();
+        dataStore.put(instructor);
         return instructor;
     }
 
@@ -53,7 +67,7 @@ public class InstructorService implements CrudService<Instructor> {
         existing.setFullName(instructor.getFullName());
         existing.setDepartment(instructor.getDepartment());
         existing.setEmail(instructor.getEmail());
-        persist();
+        dataStore.put(existing);
         return existing;
     }
 
@@ -63,8 +77,8 @@ public class InstructorService implements CrudService<Instructor> {
         if (existing == null) {
             throw new ResourceNotFoundException("Instructor not found: " + id);
         }
-        instructors.remove(existing);
-        persist();
+        instructors.remove(id);
+        dataStore.remove(id);
     }
 
     public void assignCourse(String instructorId, String courseId) {
@@ -73,7 +87,7 @@ public class InstructorService implements CrudService<Instructor> {
             throw new ResourceNotFoundException("Instructor not found: " + instructorId);
         }
         instructor.assignCourse(courseId);
-        persist();
+        dataStore.put(instructor);
     }
 
     public void unassignCourse(String instructorId, String courseId) {
@@ -82,12 +96,11 @@ public class InstructorService implements CrudService<Instructor> {
             throw new ResourceNotFoundException("Instructor not found: " + instructorId);
         }
         instructor.unassignCourse(courseId);
-        persist();
+        dataStore.put(instructor);
     }
 
     public void reload() {
-        instructors.clear();
-        instructors.addAll(dataStore.load());
+        instructors.replaceAll(dataStore.load());
     }
 
     public void flush() {
@@ -95,6 +108,6 @@ public class InstructorService implements CrudService<Instructor> {
     }
 
     private void persist() {
-        dataStore.save(instructors);
+        dataStore.save(instructors.values());
     }
 }
@@ -1,13 +1,15 @@
 package scrms.service;
 
 import scrms.data.DataStore;
+import scrms.data.WriteBehindScheduler;
 import scrms.exceptions.ResourceNotFoundException;
 import scrms.model.Room;
 import scrms.model.RoomType;
 import scrms.utils.ValidationUtils;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /**
  * Manages rooms on campus and exposes CRUD operations.
@@ -15,21 +17,35 @@ import java.util.List;
 public class RoomService implements CrudService<Room> {
 
     private final DataStore<Room> dataStore;
-    private final List<Room> rooms;
+    private final IndexedRepository<Room> rooms;
+    private final List<Consumer<Room>> changeListeners = new CopyOnWriteArrayList<>();
 
     public RoomService() {
-        this.dataStore = new DataStore<>("rooms.json", Room::fromJSON, Room::toJSON);
-        this.rooms = new ArrayList<>(dataStore.load());
+        this(null);
+        reload();
+    }
+
+    /**
+     * Creates the service without reading its store; call {@link #reload()} before use so that
+     * several services can be loaded concurrently.
+     *
+     * @param writeBehind scheduler coalescing journal writes, or null to write through
+     */
+    public RoomService(WriteBehindScheduler writeBehind) {
+        this.dataStore = new DataStore<>("rooms.json", Room::fromJSON, Room::writeJSON, Room::getRoomId);
+        this.dataStore.setWriteBehind(writeBehind);
+        this.dataStore.setBinaryCodec(Room::writeBinary, Room::fromBinary);
+        this.rooms = new IndexedRepository<>(Room::getRoomId);
     }
 
     @Override
     public List<Room> findAll() {
-        return new ArrayList<>(rooms);
+        return rooms.findAll();
     }
 
     @Override
     public Room findById(String id) {
-        return rooms.stream().filter(r -> r.getRoomId().equals(id)).findFirst().orElse(null);
+        return rooms.findById(id);
     }
 
     @Override
@@ -37,7 +53,7 @@ public class RoomService implements CrudService<Room> {
         ValidationUtils.requireText(room.getName(), "Room name is required");
         ValidationUtils.requirePositiveNumber(room.getCapacity(), "Room capacity must be positive");
         rooms.add(room);
-        persist();
+        dataStore.put(room);
         return room;
     }
 
@@ -54,23 +70,40 @@ public class RoomService implements CrudService<Room> {
         existing.setName(room.getName());
         existing.setCapacity(room.getCapacity());
         existing.setType(room.getType());
-        persist();
+        dataStore.put(existing);
+        notifyChanged(existing);
         return existing;
     }
 
+    /**
+     * Registers a callback run after every update or deletion, e.g. to promote waitlists when the capacity
+     * grew or stopped limiting a course.
+     *
+     * @param listener callback receiving the updated or deleted room
+     */
+    public void addChangeListener(Consumer<Room> listener) {
+        changeListeners.add(listener);
+    }
+
+    private void notifyChanged(Room room) {
+        for (Consumer<Room> listener : changeListeners) {
+            listener.accept(room);
+        }
+    }
+
     @Override
     public void delete(String id) {
         Room room = findById(id);
         if (room == null) {
             throw new ResourceNotFoundException("Room not found: " + id);
         }
-        rooms.remove(room);
-        persist();
+        rooms.remove(id);
+        dataStore.remove(id);
+        notifyChanged(room);
     }
 
     public void reload() {
-        rooms.clear();
-        rooms.addAll(dataStore.load());
+        rooms.replaceAll(dataStore.load());
     }
 
     public void flush() {
@@ -78,6 +111,6 @@ public class RoomService implements CrudService<Room> {
     }
 
     private void persist() {
-        dataStore.save(rooms);
+        dataStore.save(rooms.values());
     }
 }
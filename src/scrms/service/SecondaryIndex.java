@@ -0,0 +1,90 @@
+package scrms.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Non-unique index grouping entities by a derived key, e.g. all records of one student. Each group keeps
+ * its entities by id in insertion order, so lookups cost time proportional to the group size and a single
+ * entity can be removed without scanning its group.
+ *
+ * @param <T> entity type
+ */
+public class SecondaryIndex<T> {
+
+    private final Map<String, Map<String, T>> groups = new HashMap<>();
+    private final Function<T, String> keyOf;
+    private final Function<T, String> idOf;
+
+    /**
+     * Creates an empty index.
+     *
+     * @param keyOf extractor for the grouping key
+     * @param idOf  extractor for the entity identifier
+     */
+    public SecondaryIndex(Function<T, String> keyOf, Function<T, String> idOf) {
+        this.keyOf = keyOf;
+        this.idOf = idOf;
+    }
+
+    /**
+     * Adds an entity to the group of its key.
+     *
+     * @param entity entity to index
+     */
+    public void add(T entity) {
+        groups.computeIfAbsent(keyOf.apply(entity), key -> new LinkedHashMap<>()).put(idOf.apply(entity), entity);
+    }
+
+    /**
+     * Removes an entity from the group of its key.
+     *
+     * @param entity entity to drop
+     */
+    public void remove(T entity) {
+        String key = keyOf.apply(entity);
+        Map<String, T> group = groups.get(key);
+        if (group != null) {
+            group.remove(idOf.apply(entity));
+            if (group.isEmpty()) {
+                groups.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Lists the entities sharing a key.
+     *
+     * @param key grouping key
+     * @return entities in insertion order, empty when none match
+     */
+    public List<T> find(String key) {
+        Map<String, T> group = groups.get(key);
+        return group == null ? new ArrayList<>() : new ArrayList<>(group.values());
+    }
+
+    /**
+     * @param key grouping key
+     * @return true when at least one entity has the key
+     */
+    public boolean contains(String key) {
+        return groups.containsKey(key);
+    }
+
+    /**
+     * Rebuilds the index from scratch.
+     *
+     * @param entities entities to index
+     */
+    public void rebuild(Collection<T> entities) {
+        groups.clear();
+        for (T entity : entities) {
+            add(entity);
+        }
+    }
+}
@@ -1,7 +1,19 @@
 package scrms.service;
 
+import scrms.data.WriteBehindScheduler;
+import scrms.exceptions.PersistenceException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 /**
- * Centralized place that wires together all services.
+ * Centralized place that wires together all services. Services are wired first and their stores are then
+ * loaded concurrently, so start-up takes about as long as the slowest file rather than the sum of all of them.
  */
 public class ServiceRegistry {
 
@@ -14,17 +26,23 @@ public class ServiceRegistry {
     private final AttendanceService attendanceService;
     private final GradeService gradeService;
     private final AuthenticationService authenticationService;
+    private final AvailabilityService availabilityService;
+    private final WriteBehindScheduler writeBehind;
 
     public ServiceRegistry() {
-        this.studentService = new StudentService();
-        this.instructorService = new InstructorService();
-        this.roomService = new RoomService();
-        this.courseService = new CourseService(instructorService, roomService, studentService);
-        this.timetableService = new TimetableService(courseService, roomService);
-        this.bookingService = new BookingService(roomService, timetableService);
-        this.attendanceService = new AttendanceService(studentService, courseService);
-        this.gradeService = new GradeService(studentService, courseService);
-        this.authenticationService = new AuthenticationService();
+        this.writeBehind = new WriteBehindScheduler();
+        this.studentService = new StudentService(writeBehind);
+        this.instructorService = new InstructorService(writeBehind);
+        this.roomService = new RoomService(writeBehind);
+        this.courseService = new CourseService(instructorService, roomService, studentService, writeBehind);
+        this.timetableService = new TimetableService(courseService, roomService, writeBehind);
+        this.bookingService = new BookingService(roomService, timetableService, writeBehind);
+        this.attendanceService = new AttendanceService(studentService, courseService, writeBehind);
+        this.gradeService = new GradeService(studentService, courseService, writeBehind);
+        this.authenticationService = new AuthenticationService(writeBehind);
+        this.availabilityService = new AvailabilityService(roomService, timetableService, bookingService);
+        reloadAll();
+        Runtime.getRuntime().addShutdownHook(new Thread(writeBehind::shutdown, "write-behind-shutdown"));
     }
 
     public StudentService getStudentService() {
@@ -63,10 +81,15 @@ public class ServiceRegistry {
         return authenticationService;
     }
 
+    public AvailabilityService getAvailabilityService() {
+        return availabilityService;
+    }
+
     /**
      * Flushes all services to disk.
      */
     public void saveAll() {
+        writeBehind.flush();
         studentService.flush();
         instructorService.flush();
         roomService.flush();
@@ -79,17 +102,53 @@ public class ServiceRegistry {
     }
 
     /**
-     * Reloads all services from disk.
+     * Reloads all services from disk. Each service only touches its own store, so the loads run in
+     * parallel and this method returns once every one of them has completed.
      */
     public void reloadAll() {
-        studentService.reload();
-        instructorService.reload();
-        roomService.reload();
-        courseService.reload();
-        timetableService.reload();
-        bookingService.reload();
-        attendanceService.reload();
-        gradeService.reload();
-        authenticationService.reload();
+        List<Runnable> loads = List.of(
+                studentService::reload,
+                instructorService::reload,
+                roomService::reload,
+                courseService::reload,
+                timetableService::reload,
+                bookingService::reload,
+                attendanceService::reload,
+                gradeService::reload,
+                authenticationService::reload);
+        ExecutorService loader = Executors.newFixedThreadPool(loads.size(), runnable -> {
+            Thread thread = new Thread(runnable, "store-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (Runnable load : loads) {
+                tasks.add(() -> {
+                    load.run();
+                    return null;
+                });
+            }
+            for (Future<Void> result : loader.invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PersistenceException("Interrupted while loading data", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new PersistenceException("Unable to load data", e.getCause());
+        } finally {
+            loader.shutdown();
+        }
+    }
+
+    /**
+     * Writes every buffered change and stops background persistence. Called when the application exits.
+     */
+    public void shutdown() {
+        writeBehind.shutdown();
     }
 }
@@ -1,12 +1,16 @@
 package scrms.service;
 
 import scrms.data.DataStore;
+import scrms.data.WriteBehindScheduler;
 import scrms.exceptions.ResourceNotFoundException;
 import scrms.model.Student;
 import scrms.utils.ValidationUtils;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service responsible for CRUD operations on students.
@@ -14,21 +18,34 @@ import java.util.List;
 public class StudentService implements CrudService<Student> {
 
     private final DataStore<Student> dataStore;
-    private final List<Student> students;
+    private final IndexedRepository<Student> students;
 
     public StudentService() {
-        this.dataStore = new DataStore<>("students.json", Student::fromJSON, Student::toJSON);
-        this.students = new ArrayList<>(dataStore.load());
+        this(null);
+        reload();
+    }
+
+    /**
+     * Creates the service without reading its store; call {@link #reload()} before use so that
+     * several services can be loaded concurrently.
+     *
+     * @param writeBehind scheduler coalescing journal writes, or null to write through
+     */
+    public StudentService(WriteBehindScheduler writeBehind) {
+        this.dataStore = new DataStore<>("students.json", Student::fromJSON, Student::writeJSON, Student::getStudentId);
+        this.dataStore.setWriteBehind(writeBehind);
+        this.dataStore.setBinaryCodec(Student::writeBinary, Student::fromBinary);
+        this.students = new IndexedRepository<>(Student::getStudentId);
     }
 
     @Override
     public List<Student> findAll() {
-        return new ArrayList<>(students);
+        return students.findAll();
     }
 
     @Override
     public Student findById(String id) {
-        return students.stream().filter(s -> s.getStudentId().equals(id)).findFirst().orElse(null);
+        return students.findById(id);
     }
 
     @Override
@@ -37,7 +54,7 @@ public class StudentService implements CrudService<Student> {
         ValidationUtils.requireText(student.getDepartment(), "Student department is required");
         ValidationUtils.requireEmail(student.getEmail());
         students.add(student);
-        persist();
+        dataStore.put(student);
         return student;
     }
 
@@ -63,7 +80,7 @@ public class StudentService implements CrudService<Student> {
         existing.setFullName(student.getFullName());
         existing.setDepartment(student.getDepartment());
         existing.setEmail(student.getEmail());
-        persist();
+        dataStore.put(existing);
         return existing;
     }
 
@@ -73,8 +90,8 @@ public class StudentService implements CrudService<Student> {
         if (student == null) {
             throw new ResourceNotFoundException("Student not found: " + id);
         }
-        students.remove(student);
-        persist();
+        students.remove(id);
+        dataStore.remove(id);
     }
 
     /**
@@ -89,7 +106,45 @@ public class StudentService implements CrudService<Student> {
             throw new ResourceNotFoundException("Student not found: " + studentId);
         }
         student.enrollCourse(courseId);
-        persist();
+        dataStore.put(student);
+    }
+
+    /**
+     * Enrolls several students in courses and persists the changed students in one store write. Every
+     * student is looked up before anything is changed.
+     *
+     * @param courseIdsByStudent course identifiers to add, per student identifier
+     */
+    public void enrollInCourses(Map<String, ? extends Collection<String>> courseIdsByStudent) {
+        Map<Student, Collection<String>> targets = new LinkedHashMap<>();
+        for (Map.Entry<String, ? extends Collection<String>> entry : courseIdsByStudent.entrySet()) {
+            Student student = findById(entry.getKey());
+            if (student == null) {
+                throw new ResourceNotFoundException("Student not found: " + entry.getKey());
+            }
+            targets.put(student, entry.getValue());
+        }
+        enrollResolved(targets);
+    }
+
+    /**
+     * Enrolls students the caller has already looked up. Nothing is validated, so callers that change
+     * their own entities first cannot be left half-done by a student deleted in the meantime.
+     *
+     * @param courseIdsByStudent course identifiers to add, per student
+     */
+    void enrollResolved(Map<Student, ? extends Collection<String>> courseIdsByStudent) {
+        List<Student> changed = new ArrayList<>();
+        for (Map.Entry<Student, ? extends Collection<String>> entry : courseIdsByStudent.entrySet()) {
+            boolean enrolled = false;
+            for (String courseId : entry.getValue()) {
+                enrolled |= entry.getKey().enrollCourse(courseId);
+            }
+            if (enrolled) {
+                changed.add(entry.getKey());
+            }
+        }
+        dataStore.putAll(changed);
     }
 
     /**
@@ -103,16 +158,25 @@ public class StudentService implements CrudService<Student> {
         if (student == null) {
             throw new ResourceNotFoundException("Student not found: " + studentId);
         }
+        dropResolved(student, courseId);
+    }
+
+    /**
+     * Removes a student the caller has already looked up from a course.
+     *
+     * @param student  student
+     * @param courseId course identifier
+     */
+    void dropResolved(Student student, String courseId) {
         student.dropCourse(courseId);
-        persist();
+        dataStore.put(student);
     }
 
     /**
      * Forces the service to reload data from disk.
      */
     public void reload() {
-        students.clear();
-        students.addAll(dataStore.load());
+        students.replaceAll(dataStore.load());
     }
 
     /**
@@ -123,6 +187,6 @@ public class StudentService implements CrudService<Student> {
     }
 
     private void persist() {
-        dataStore.save(students);
+        dataStore.save(students.values());
     }
 }
@@ -0,0 +1,78 @@
+package scrms.service;
+
+/**
+ * Event describing a change that may invalidate part of the timetable, handed to
+ * {@link TimetableService#repair(TimetableChange)}.
+ */
+public final class TimetableChange {
+
+    /**
+     * Kinds of change the timetable can be repaired for.
+     */
+    public enum Kind {
+        ROOM_REMOVED,
+        COURSE_ADDED,
+        COURSE_CHANGED,
+        COURSE_REMOVED,
+        ENROLLMENT_CHANGED
+    }
+
+    private final Kind kind;
+    private final String targetId;
+
+    private TimetableChange(Kind kind, String targetId) {
+        this.kind = kind;
+        this.targetId = targetId;
+    }
+
+    /**
+     * @param roomId removed room
+     * @return change event
+     */
+    public static TimetableChange roomRemoved(String roomId) {
+        return new TimetableChange(Kind.ROOM_REMOVED, roomId);
+    }
+
+    /**
+     * @param courseId new course that should receive a slot
+     * @return change event
+     */
+    public static TimetableChange courseAdded(String courseId) {
+        return new TimetableChange(Kind.COURSE_ADDED, courseId);
+    }
+
+    /**
+     * @param courseId course whose instructor or room changed
+     * @return change event
+     */
+    public static TimetableChange courseChanged(String courseId) {
+        return new TimetableChange(Kind.COURSE_CHANGED, courseId);
+    }
+
+    /**
+     * @param courseId removed course
+     * @return change event
+     */
+    public static TimetableChange courseRemoved(String courseId) {
+        return new TimetableChange(Kind.COURSE_REMOVED, courseId);
+    }
+
+    /**
+     * @param courseId course whose enrollment changed
+     * @return change event
+     */
+    public static TimetableChange enrollmentChanged(String courseId) {
+        return new TimetableChange(Kind.ENROLLMENT_CHANGED, courseId);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return id of the room or course the change refers to
+     */
+    public String getTargetId() {
+        return targetId;
+    }
+}
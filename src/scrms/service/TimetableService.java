@@ -1,67 +1,146 @@
 package scrms.service;
 
 import scrms.data.DataStore;
+import scrms.data.WriteBehindScheduler;
 import scrms.exceptions.ResourceNotFoundException;
 import scrms.model.Course;
 import scrms.model.Room;
 import scrms.model.ScheduleSlot;
+import scrms.utils.IntervalIndex;
+import scrms.utils.OccupancyBitmap;
 
 import java.time.DayOfWeek;
 import java.time.LocalTime;
 import java.util.ArrayList;
-import java.util.EnumSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Handles timetable generation and conflict detection.
+ * Handles timetable generation and conflict detection. Slots are indexed per room and weekday in an
+ * {@link IntervalIndex}, so a conflict check only looks at that room's day. Each room also keeps an
+ * {@link OccupancyBitmap} of its week, which rejects most free ranges before the exact check runs and
+ * backs the utilization figures.
  */
 public class TimetableService {
 
+    /**
+     * Default wall-clock budget of an automatic timetable search.
+     */
+    public static final long DEFAULT_SEARCH_MILLIS = 2_000;
+
     private final DataStore<ScheduleSlot> dataStore;
-    private final List<ScheduleSlot> slots;
+    private final IndexedRepository<ScheduleSlot> slots;
+    private final SecondaryIndex<ScheduleSlot> byCourse;
+    private final Map<String, Map<DayOfWeek, IntervalIndex<ScheduleSlot>>> byRoomDay;
+    private final Map<String, OccupancyBitmap> occupancy;
     private final CourseService courseService;
     private final RoomService roomService;
 
     public TimetableService(CourseService courseService, RoomService roomService) {
-        this.dataStore = new DataStore<>("timetable.json", ScheduleSlot::fromJSON, ScheduleSlot::toJSON);
-        this.slots = new ArrayList<>(dataStore.load());
+        this(courseService, roomService, null);
+        reload();
+    }
+
+    /**
+     * Creates the service without reading its store; call {@link #reload()} before use so that
+     * several services can be loaded concurrently.
+     *
+     * @param courseService course service
+     * @param roomService   room service
+     * @param writeBehind   scheduler coalescing journal writes, or null to write through
+     */
+    public TimetableService(CourseService courseService, RoomService roomService, WriteBehindScheduler writeBehind) {
+        this.dataStore = new DataStore<>("timetable.json", ScheduleSlot::fromJSON, ScheduleSlot::writeJSON,
+                ScheduleSlot::getSlotId);
+        this.dataStore.setWriteBehind(writeBehind);
+        this.dataStore.setBinaryCodec(ScheduleSlot::writeBinary, ScheduleSlot::fromBinary);
+        this.slots = new IndexedRepository<>(ScheduleSlot::getSlotId);
+        this.byCourse = new SecondaryIndex<>(ScheduleSlot::getCourseId, ScheduleSlot::getSlotId);
+        this.byRoomDay = new HashMap<>();
+        this.occupancy = new HashMap<>();
         this.courseService = courseService;
         this.roomService = roomService;
     }
 
     /**
-     * Generates a simple, conflict free timetable for all courses.
+     * Places every course that has no slot yet with one solver worker per core and the default budget.
      *
      * @return list of schedule slots
      */
     public List<ScheduleSlot> generateAutomaticTimetable() {
-        List<Course> courses = courseService.findAll();
+        return generateAutomaticTimetable(Runtime.getRuntime().availableProcessors(), DEFAULT_SEARCH_MILLIS);
+    }
+
+    /**
+     * Places every course that has no slot yet using {@link TimetableSolver}. Existing slots are kept;
+     * courses without a feasible placement are left unscheduled.
+     * <p>
+     * The workers run on a fork/join pool and restart the solver with fresh seeds until the wall-clock
+     * budget is spent, keeping the solution with the fewest unplaced courses and then the fewest soft
+     * violations. The first run is the deterministic one, and the search stops early once a solution
+     * places everything in its preferred room.
+     *
+     * @param workers      number of concurrent solver workers
+     * @param budgetMillis wall-clock budget for the search
+     * @return list of schedule slots
+     */
+    public List<ScheduleSlot> generateAutomaticTimetable(int workers, long budgetMillis) {
         List<Room> rooms = roomService.findAll();
         if (rooms.isEmpty()) {
-            return new ArrayList<>(slots);
+            return slots.findAll();
         }
-        LocalTime[] startTimes = {LocalTime.of(8, 0), LocalTime.of(10, 0),
-                LocalTime.of(13, 0), LocalTime.of(15, 0)};
-        DayOfWeek[] days = EnumSet.range(DayOfWeek.MONDAY, DayOfWeek.FRIDAY).toArray(new DayOfWeek[0]);
-        int pointer = 0;
-        for (Course course : courses) {
-            boolean alreadyScheduled = slots.stream().anyMatch(slot -> slot.getCourseId().equals(course.getCourseId()));
-            if (alreadyScheduled) {
-                continue;
+        TimetableSolver solver = new TimetableSolver(courseService.findAll(), rooms, slots.values());
+        TimetableSolver.Solution solution = search(solver, Math.max(1, workers), budgetMillis);
+        for (ScheduleSlot slot : solution.getSlots()) {
+            index(slot);
+        }
+        dataStore.putAll(solution.getSlots());
+        return slots.findAll();
+    }
+
+    private TimetableSolver.Solution search(TimetableSolver solver, int workers, long budgetMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        AtomicBoolean solved = new AtomicBoolean();
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        try {
+            List<CompletableFuture<TimetableSolver.Solution>> runs = new ArrayList<>();
+            for (int worker = 0; worker < workers; worker++) {
+                long firstSeed = worker;
+                runs.add(CompletableFuture.supplyAsync(() -> {
+                    TimetableSolver.Solution best = null;
+                    for (long seed = firstSeed; ; seed += workers) {
+                        TimetableSolver.Solution candidate = seed == 0 ? solver.solve() : solver.solve(seed);
+                        if (candidate.isBetterThan(best)) {
+                            best = candidate;
+                        }
+                        if (best.getUnplacedCourseIds().isEmpty() && best.getSoftViolations() == 0) {
+                            solved.set(true);
+                        }
+                        if (solved.get() || System.nanoTime() >= deadline) {
+                            return best;
+                        }
+                    }
+                }, pool));
             }
-            Room preferredRoom = course.getRoomId() != null ? roomService.findById(course.getRoomId()) : null;
-            Room room = preferredRoom != null ? preferredRoom : rooms.get(pointer % rooms.size());
-            DayOfWeek day = days[pointer % days.length];
-            LocalTime start = startTimes[pointer % startTimes.length];
-            LocalTime end = start.plusHours(1).plusMinutes(45);
-            pointer++;
-            if (!hasConflict(room.getRoomId(), day, start, end)) {
-                slots.add(ScheduleSlot.create(course.getCourseId(), room.getRoomId(), day, start, end));
+            TimetableSolver.Solution best = null;
+            for (CompletableFuture<TimetableSolver.Solution> run : runs) {
+                TimetableSolver.Solution candidate = run.join();
+                if (candidate.isBetterThan(best)) {
+                    best = candidate;
+                }
             }
+            return best;
+        } finally {
+            pool.shutdown();
         }
-        persist();
-        return new ArrayList<>(slots);
     }
 
     /**
@@ -80,8 +159,8 @@ public class TimetableService {
             throw new IllegalStateException("Time conflict detected for room " + room.getName());
         }
         ScheduleSlot slot = ScheduleSlot.create(courseId, roomId, day, start, end);
-        slots.add(slot);
-        persist();
+        index(slot);
+        dataStore.put(slot);
         return slot;
     }
 
@@ -89,47 +168,153 @@ public class TimetableService {
      * Checks if the provided booking conflicts with an existing slot.
      */
     public boolean hasConflict(String roomId, DayOfWeek day, LocalTime start, LocalTime end) {
-        return slots.stream().anyMatch(slot ->
-                slot.getRoomId().equals(roomId)
-                        && slot.getDayOfWeek() == day
-                        && timeOverlap(slot.getStartTime(), slot.getEndTime(), start, end));
+        if (!mayConflict(roomId, day, start, end)) {
+            return false;
+        }
+        IntervalIndex<ScheduleSlot> index = intervals(roomId, day);
+        return index != null && index.overlaps(start.toSecondOfDay(), end.toSecondOfDay());
     }
 
     /**
      * Checks if conflict occurs with specific date/time by converting date to DayOfWeek.
      */
     public boolean hasConflict(String roomId, DayOfWeek day, LocalTime start, LocalTime end, String ignoreSlotId) {
-        return slots.stream().anyMatch(slot ->
-                !slot.getSlotId().equals(ignoreSlotId)
-                        && slot.getRoomId().equals(roomId)
-                        && slot.getDayOfWeek() == day
-                        && timeOverlap(slot.getStartTime(), slot.getEndTime(), start, end));
-    }
-
-    private boolean timeOverlap(LocalTime start1, LocalTime end1, LocalTime start2, LocalTime end2) {
-        return !start1.isAfter(end2) && !start2.isAfter(end1);
+        if (!mayConflict(roomId, day, start, end)) {
+            return false;
+        }
+        IntervalIndex<ScheduleSlot> index = intervals(roomId, day);
+        return index != null && index.overlaps(start.toSecondOfDay(), end.toSecondOfDay(),
+                slot -> !slot.getSlotId().equals(ignoreSlotId));
     }
 
     /**
      * Returns slots for a specific course.
      */
     public List<ScheduleSlot> slotsForCourse(String courseId) {
-        return slots.stream().filter(slot -> slot.getCourseId().equals(courseId))
-                .collect(Collectors.toList());
+        return byCourse.find(courseId);
+    }
+
+    /**
+     * Returns the slots held in a room on a weekday.
+     *
+     * @param roomId room identifier
+     * @param day    day of week
+     * @return slots ordered by start time
+     */
+    public List<ScheduleSlot> slotsForRoom(String roomId, DayOfWeek day) {
+        IntervalIndex<ScheduleSlot> index = intervals(roomId, day);
+        return index == null ? List.of() : index.values();
+    }
+
+    /**
+     * Returns the share of a room's time taken by slots on a weekday, measured in five-minute quanta.
+     *
+     * @param roomId room identifier
+     * @param day    day of week
+     * @param from   start of the measured window
+     * @param to     end of the measured window
+     * @return occupied fraction between 0 and 1
+     */
+    public double utilization(String roomId, DayOfWeek day, LocalTime from, LocalTime to) {
+        int start = from.toSecondOfDay();
+        int end = to.toSecondOfDay();
+        int quanta = (end - start + OccupancyBitmap.QUANTUM_SECONDS - 1) / OccupancyBitmap.QUANTUM_SECONDS;
+        OccupancyBitmap bitmap = occupancy.get(roomId);
+        if (bitmap == null || quanta <= 0) {
+            return 0;
+        }
+        return (double) bitmap.occupied(day, start, end) / quanta;
     }
 
     public List<ScheduleSlot> findAll() {
-        return new ArrayList<>(slots);
+        return slots.findAll();
     }
 
     public void deleteSlot(String slotId) {
-        slots.removeIf(slot -> slot.getSlotId().equals(slotId));
-        persist();
+        ScheduleSlot slot = slots.findById(slotId);
+        if (slot != null) {
+            unindex(slot);
+            dataStore.remove(slotId);
+        }
+    }
+
+    /**
+     * Repairs the timetable after a change instead of regenerating it. Only the slots invalidated by the
+     * change are re-placed, preferably at their previous time, while every other slot stays fixed. When a
+     * displaced course still cannot be placed, the courses it shares an instructor or students with are
+     * allowed to move as well, and that wider attempt is kept only if it leaves fewer courses unplaced.
+     *
+     * @param change change that happened
+     * @return new slots and the courses left without a slot
+     */
+    public TimetableSolver.Solution repair(TimetableChange change) {
+        List<ScheduleSlot> displaced = displacedSlots(change);
+        for (ScheduleSlot slot : displaced) {
+            unindex(slot);
+        }
+        List<Course> courses = courseService.findAll();
+        List<Course> toPlace = new ArrayList<>();
+        List<ScheduleSlot> hints = new ArrayList<>();
+        if (change.getKind() == TimetableChange.Kind.COURSE_ADDED) {
+            Course course = courseService.findById(change.getTargetId());
+            if (course != null && !byCourse.contains(course.getCourseId())) {
+                toPlace.add(course);
+                hints.add(null);
+            }
+        } else if (change.getKind() != TimetableChange.Kind.COURSE_REMOVED) {
+            for (ScheduleSlot slot : displaced) {
+                Course course = courseService.findById(slot.getCourseId());
+                if (course != null) {
+                    toPlace.add(course);
+                    hints.add(slot);
+                }
+            }
+        }
+        List<Room> rooms = roomService.findAll();
+        TimetableSolver.Solution solution = new TimetableSolver(toPlace, hints, courses, rooms, slots.values()).solve();
+        if (!solution.getUnplacedCourseIds().isEmpty()) {
+            List<ScheduleSlot> neighbors = new ArrayList<>();
+            for (ScheduleSlot slot : conflictingSlots(solution.getUnplacedCourseIds(), courses)) {
+                Course course = courseService.findById(slot.getCourseId());
+                unindex(slot);
+                if (course == null) {
+                    // The slot outlived its course; drop it rather than hand the solver a missing course.
+                    displaced.add(slot);
+                    continue;
+                }
+                neighbors.add(slot);
+                toPlace.add(course);
+                hints.add(slot);
+            }
+            TimetableSolver.Solution wider = new TimetableSolver(toPlace, hints, courses, rooms, slots.values()).solve();
+            if (wider.getUnplacedCourseIds().size() < solution.getUnplacedCourseIds().size()) {
+                solution = wider;
+                displaced.addAll(neighbors);
+            } else {
+                for (ScheduleSlot slot : neighbors) {
+                    index(slot);
+                }
+            }
+        }
+        for (ScheduleSlot slot : displaced) {
+            dataStore.remove(slot.getSlotId());
+        }
+        for (ScheduleSlot slot : solution.getSlots()) {
+            index(slot);
+        }
+        dataStore.putAll(solution.getSlots());
+        return solution;
     }
 
     public void reload() {
-        slots.clear();
-        slots.addAll(dataStore.load());
+        List<ScheduleSlot> loaded = dataStore.load();
+        slots.replaceAll(loaded);
+        byCourse.rebuild(loaded);
+        byRoomDay.clear();
+        occupancy.clear();
+        for (ScheduleSlot slot : loaded) {
+            indexInterval(slot);
+        }
     }
 
     public void flush() {
@@ -137,6 +322,132 @@ public class TimetableService {
     }
 
     private void persist() {
-        dataStore.save(slots);
+        dataStore.save(slots.values());
+    }
+
+    private void index(ScheduleSlot slot) {
+        slots.add(slot);
+        byCourse.add(slot);
+        indexInterval(slot);
+    }
+
+    private void indexInterval(ScheduleSlot slot) {
+        byRoomDay.computeIfAbsent(slot.getRoomId(), id -> new EnumMap<>(DayOfWeek.class))
+                .computeIfAbsent(slot.getDayOfWeek(), day -> new IntervalIndex<>())
+                .add(slot.getStartTime().toSecondOfDay(), slot.getEndTime().toSecondOfDay(), slot);
+        occupancy.computeIfAbsent(slot.getRoomId(), id -> new OccupancyBitmap())
+                .mark(slot.getDayOfWeek(), slot.getStartTime().toSecondOfDay(), slot.getEndTime().toSecondOfDay());
+    }
+
+    private void unindex(ScheduleSlot slot) {
+        slots.remove(slot.getSlotId());
+        byCourse.remove(slot);
+        IntervalIndex<ScheduleSlot> index = intervals(slot.getRoomId(), slot.getDayOfWeek());
+        if (index != null && index.remove(slot)) {
+            OccupancyBitmap bitmap = occupancy.get(slot.getRoomId());
+            bitmap.clear(slot.getDayOfWeek());
+            for (ScheduleSlot remaining : index.values()) {
+                bitmap.mark(remaining.getDayOfWeek(), remaining.getStartTime().toSecondOfDay(),
+                        remaining.getEndTime().toSecondOfDay());
+            }
+        }
+    }
+
+    private boolean mayConflict(String roomId, DayOfWeek day, LocalTime start, LocalTime end) {
+        OccupancyBitmap bitmap = occupancy.get(roomId);
+        return bitmap != null && bitmap.mayOverlap(day, start.toSecondOfDay(), end.toSecondOfDay());
+    }
+
+    private List<ScheduleSlot> displacedSlots(TimetableChange change) {
+        List<ScheduleSlot> displaced = new ArrayList<>();
+        switch (change.getKind()) {
+            case ROOM_REMOVED -> {
+                Map<DayOfWeek, IntervalIndex<ScheduleSlot>> days = byRoomDay.get(change.getTargetId());
+                if (days != null) {
+                    for (IntervalIndex<ScheduleSlot> index : days.values()) {
+                        displaced.addAll(index.values());
+                    }
+                }
+            }
+            case COURSE_REMOVED -> displaced.addAll(byCourse.find(change.getTargetId()));
+            case COURSE_CHANGED, ENROLLMENT_CHANGED -> {
+                Course course = courseService.findById(change.getTargetId());
+                if (course == null) {
+                    displaced.addAll(byCourse.find(change.getTargetId()));
+                    break;
+                }
+                for (ScheduleSlot slot : byCourse.find(course.getCourseId())) {
+                    if (!isValid(slot, course)) {
+                        displaced.add(slot);
+                    }
+                }
+            }
+            default -> {
+            }
+        }
+        return displaced;
+    }
+
+    private boolean isValid(ScheduleSlot slot, Course course) {
+        Room room = roomService.findById(slot.getRoomId());
+        if (room == null || room.getCapacity() < course.getEnrolledCount()) {
+            return false;
+        }
+        Set<String> students = course.getEnrolledStudentIds();
+        int start = slot.getStartTime().toSecondOfDay();
+        int end = slot.getEndTime().toSecondOfDay();
+        for (Map<DayOfWeek, IntervalIndex<ScheduleSlot>> days : byRoomDay.values()) {
+            IntervalIndex<ScheduleSlot> index = days.get(slot.getDayOfWeek());
+            if (index == null) {
+                continue;
+            }
+            for (ScheduleSlot other : index.overlapping(start, end)) {
+                Course otherCourse = other == slot ? null : courseService.findById(other.getCourseId());
+                if (otherCourse != null && sharesPeople(course, students, otherCourse)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private List<ScheduleSlot> conflictingSlots(List<String> courseIds, List<Course> courses) {
+        Set<String> instructors = new HashSet<>();
+        Set<String> students = new HashSet<>();
+        for (String courseId : courseIds) {
+            Course course = courseService.findById(courseId);
+            if (course.getInstructorId() != null) {
+                instructors.add(course.getInstructorId());
+            }
+            students.addAll(course.getEnrolledStudentIds());
+        }
+        Set<String> unplaced = new HashSet<>(courseIds);
+        List<ScheduleSlot> result = new ArrayList<>();
+        for (Course course : courses) {
+            if (!unplaced.contains(course.getCourseId())
+                    && (instructors.contains(course.getInstructorId()) || sharesStudent(course, students))) {
+                result.addAll(byCourse.find(course.getCourseId()));
+            }
+        }
+        return result;
+    }
+
+    private static boolean sharesPeople(Course course, Set<String> students, Course other) {
+        return (course.getInstructorId() != null && course.getInstructorId().equals(other.getInstructorId()))
+                || sharesStudent(other, students);
+    }
+
+    private static boolean sharesStudent(Course course, Set<String> students) {
+        for (String studentId : course.getEnrolledStudentIds()) {
+            if (students.contains(studentId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private IntervalIndex<ScheduleSlot> intervals(String roomId, DayOfWeek day) {
+        Map<DayOfWeek, IntervalIndex<ScheduleSlot>> days = byRoomDay.get(roomId);
+        return days == null ? null : days.get(day);
     }
 }
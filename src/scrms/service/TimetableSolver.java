@@ -0,0 +1,565 @@
+package scrms.service;
+
+import scrms.model.Course;
+import scrms.model.Room;
+import scrms.model.ScheduleSlot;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Heuristic timetable solver. Every unscheduled course is a variable whose domain is the set of
+ * (room, day, start) placements on the weekly grid.
+ * <p>
+ * Hard constraints: a room holds one course per period, the room capacity covers the enrolled students,
+ * and no instructor or student attends two courses in the same period. Existing slots stay fixed and
+ * block the periods they overlap. The preferred {@link Course#getRoomId() room} is a soft constraint, and so
+ * is the previous period of a slot that is being re-placed during a repair.
+ * <p>
+ * Courses are placed in DSatur order: the course with the most periods already ruled out by its placed
+ * neighbours goes next, ties broken by conflict degree and by how few rooms fit it. Each course takes the
+ * placement that leaves its neighbours the most options and wastes the fewest seats. A course with no
+ * feasible placement triggers a local search that moves one blocking course elsewhere, and a final pass
+ * moves courses into their preferred rooms where possible.
+ * <p>
+ * The solver only reads its problem after construction, so several seeded runs may execute concurrently.
+ */
+public class TimetableSolver {
+
+    /**
+     * Days used by the weekly grid.
+     */
+    public static final DayOfWeek[] DAYS = EnumSet.range(DayOfWeek.MONDAY, DayOfWeek.FRIDAY)
+            .toArray(new DayOfWeek[0]);
+
+    /**
+     * Start times of the periods of a day.
+     */
+    public static final LocalTime[] START_TIMES = {LocalTime.of(8, 0), LocalTime.of(10, 0),
+            LocalTime.of(13, 0), LocalTime.of(15, 0)};
+
+    /**
+     * Length of a scheduled period in minutes.
+     */
+    public static final int PERIOD_MINUTES = 105;
+
+    private static final int PERIODS = DAYS.length * START_TIMES.length;
+    private static final int FREE = -1;
+    private static final int FIXED = -2;
+
+    private final Course[] courses;
+    private final Room[] rooms;
+    private final int[] enrolled;
+    private final int[] preferredRoom;
+    private final int[] preferredPeriod;
+    private final int[] fittingRooms;
+    private final int[][] neighbors;
+    private final int[][] fixedBlocked;
+    private final boolean[][] fixedRoomBusy;
+
+    /**
+     * Builds the problem for the courses that do not have a slot yet.
+     *
+     * @param allCourses every course on record
+     * @param allRooms   rooms available for teaching
+     * @param existing   slots that stay where they are
+     */
+    public TimetableSolver(Collection<Course> allCourses, Collection<Room> allRooms, Collection<ScheduleSlot> existing) {
+        this(unscheduled(allCourses, existing), null, allCourses, allRooms, existing);
+    }
+
+    /**
+     * Builds the problem for an explicit list of placements, e.g. the slots displaced by a change.
+     *
+     * @param toPlace    courses to place, one slot per entry
+     * @param hints      previous slot of each entry whose period is preferred, or null
+     * @param allCourses every course on record, used to find the conflicts of existing slots
+     * @param allRooms   rooms available for teaching
+     * @param existing   slots that stay where they are
+     */
+    public TimetableSolver(List<Course> toPlace, List<ScheduleSlot> hints, Collection<Course> allCourses,
+                           Collection<Room> allRooms, Collection<ScheduleSlot> existing) {
+        Map<String, Course> coursesById = new HashMap<>();
+        for (Course course : allCourses) {
+            coursesById.put(course.getCourseId(), course);
+        }
+        this.courses = toPlace.toArray(new Course[0]);
+        this.rooms = allRooms.toArray(new Room[0]);
+        Arrays.sort(rooms, Comparator.comparingInt(Room::getCapacity));
+        Map<String, Integer> roomIndex = new HashMap<>();
+        for (int r = 0; r < rooms.length; r++) {
+            roomIndex.put(rooms[r].getRoomId(), r);
+        }
+
+        int n = courses.length;
+        this.enrolled = new int[n];
+        this.preferredRoom = new int[n];
+        this.preferredPeriod = new int[n];
+        this.fittingRooms = new int[n];
+        Map<String, List<Integer>> byInstructor = new HashMap<>();
+        Map<String, List<Integer>> byStudent = new HashMap<>();
+        for (int c = 0; c < n; c++) {
+            Course course = courses[c];
+            enrolled[c] = course.getEnrolledCount();
+            Integer preferred = course.getRoomId() == null ? null : roomIndex.get(course.getRoomId());
+            preferredRoom[c] = preferred == null ? FREE : preferred;
+            preferredPeriod[c] = hints == null ? FREE : periodOf(hints.get(c));
+            for (Room room : rooms) {
+                if (room.getCapacity() >= enrolled[c]) {
+                    fittingRooms[c]++;
+                }
+            }
+            if (course.getInstructorId() != null) {
+                byInstructor.computeIfAbsent(course.getInstructorId(), id -> new ArrayList<>()).add(c);
+            }
+            for (String studentId : course.getEnrolledStudentIds()) {
+                byStudent.computeIfAbsent(studentId, id -> new ArrayList<>()).add(c);
+            }
+        }
+
+        List<Set<Integer>> adjacency = new ArrayList<>(n);
+        for (int c = 0; c < n; c++) {
+            adjacency.add(new LinkedHashSet<>());
+        }
+        for (List<Integer> group : byInstructor.values()) {
+            link(adjacency, group);
+        }
+        for (List<Integer> group : byStudent.values()) {
+            link(adjacency, group);
+        }
+        this.neighbors = new int[n][];
+        for (int c = 0; c < n; c++) {
+            neighbors[c] = adjacency.get(c).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        this.fixedBlocked = new int[n][PERIODS];
+        this.fixedRoomBusy = new boolean[rooms.length][PERIODS];
+        for (ScheduleSlot slot : existing) {
+            Integer room = roomIndex.get(slot.getRoomId());
+            Course course = coursesById.get(slot.getCourseId());
+            for (int p = 0; p < PERIODS; p++) {
+                if (!overlaps(slot, p)) {
+                    continue;
+                }
+                if (room != null) {
+                    fixedRoomBusy[room][p] = true;
+                }
+                if (course == null) {
+                    continue;
+                }
+                Set<Integer> affected = new HashSet<>();
+                if (course.getInstructorId() != null) {
+                    affected.addAll(byInstructor.getOrDefault(course.getInstructorId(), List.of()));
+                }
+                for (String studentId : course.getEnrolledStudentIds()) {
+                    affected.addAll(byStudent.getOrDefault(studentId, List.of()));
+                }
+                for (int c : affected) {
+                    fixedBlocked[c][p]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Places as many courses as possible.
+     *
+     * @return placements and the courses that could not be placed
+     */
+    public Solution solve() {
+        return new Search(null).run();
+    }
+
+    /**
+     * Places as many courses as possible with randomized tie-breaking, so different seeds explore
+     * different schedules.
+     *
+     * @param seed random seed
+     * @return placements and the courses that could not be placed
+     */
+    public Solution solve(long seed) {
+        return new Search(new Random(seed)).run();
+    }
+
+    /**
+     * @param period index of a grid period
+     * @return day of the period
+     */
+    static DayOfWeek dayOf(int period) {
+        return DAYS[period / START_TIMES.length];
+    }
+
+    /**
+     * @param period index of a grid period
+     * @return start time of the period
+     */
+    static LocalTime startOf(int period) {
+        return START_TIMES[period % START_TIMES.length];
+    }
+
+    private static List<Course> unscheduled(Collection<Course> allCourses, Collection<ScheduleSlot> existing) {
+        Set<String> scheduled = new HashSet<>();
+        for (ScheduleSlot slot : existing) {
+            scheduled.add(slot.getCourseId());
+        }
+        List<Course> pending = new ArrayList<>();
+        for (Course course : allCourses) {
+            if (!scheduled.contains(course.getCourseId())) {
+                pending.add(course);
+            }
+        }
+        return pending;
+    }
+
+    private static int periodOf(ScheduleSlot slot) {
+        if (slot == null) {
+            return FREE;
+        }
+        for (int p = 0; p < PERIODS; p++) {
+            if (dayOf(p) == slot.getDayOfWeek() && startOf(p).equals(slot.getStartTime())) {
+                return p;
+            }
+        }
+        return FREE;
+    }
+
+    private static void link(List<Set<Integer>> adjacency, List<Integer> group) {
+        for (int i = 0; i < group.size(); i++) {
+            for (int j = i + 1; j < group.size(); j++) {
+                adjacency.get(group.get(i)).add(group.get(j));
+                adjacency.get(group.get(j)).add(group.get(i));
+            }
+        }
+    }
+
+    private static boolean overlaps(ScheduleSlot slot, int period) {
+        if (slot.getDayOfWeek() != dayOf(period)) {
+            return false;
+        }
+        LocalTime start = startOf(period);
+        LocalTime end = start.plusMinutes(PERIOD_MINUTES);
+        return !slot.getStartTime().isAfter(end) && !start.isAfter(slot.getEndTime());
+    }
+
+    /**
+     * Outcome of a solver run.
+     */
+    public static final class Solution {
+
+        private final List<ScheduleSlot> slots;
+        private final List<String> unplacedCourseIds;
+        private final int softViolations;
+
+        Solution(List<ScheduleSlot> slots, List<String> unplacedCourseIds, int softViolations) {
+            this.slots = slots;
+            this.unplacedCourseIds = unplacedCourseIds;
+            this.softViolations = softViolations;
+        }
+
+        /**
+         * @return new slots, one per placed course
+         */
+        public List<ScheduleSlot> getSlots() {
+            return slots;
+        }
+
+        /**
+         * @return ids of the courses without a feasible placement
+         */
+        public List<String> getUnplacedCourseIds() {
+            return unplacedCourseIds;
+        }
+
+        /**
+         * @return number of placed courses outside their preferred room or previous period
+         */
+        public int getSoftViolations() {
+            return softViolations;
+        }
+
+        /**
+         * Compares two solutions by unplaced courses first and soft violations second.
+         *
+         * @param other solution to compare with, may be null
+         * @return true when this solution is strictly better
+         */
+        public boolean isBetterThan(Solution other) {
+            if (other == null) {
+                return true;
+            }
+            if (unplacedCourseIds.size() != other.unplacedCourseIds.size()) {
+                return unplacedCourseIds.size() < other.unplacedCourseIds.size();
+            }
+            return softViolations < other.softViolations;
+        }
+    }
+
+    /**
+     * Mutable state of one run, so a solver can be run several times.
+     */
+    private final class Search {
+
+        private final int[] period = new int[courses.length];
+        private final int[] room = new int[courses.length];
+        private final int[][] blocked = new int[courses.length][];
+        private final int[] saturation = new int[courses.length];
+        private final int[][] owner = new int[rooms.length][PERIODS];
+        private final int[] tieBreak = new int[courses.length];
+        private final int periodOffset;
+
+        private Search(Random random) {
+            for (int c = 0; c < courses.length; c++) {
+                tieBreak[c] = random == null ? c : random.nextInt();
+            }
+            periodOffset = random == null ? 0 : random.nextInt(PERIODS);
+            Arrays.fill(period, FREE);
+            Arrays.fill(room, FREE);
+            for (int c = 0; c < courses.length; c++) {
+                blocked[c] = fixedBlocked[c].clone();
+                for (int p = 0; p < PERIODS; p++) {
+                    if (blocked[c][p] > 0) {
+                        saturation[c]++;
+                    }
+                }
+            }
+            for (int r = 0; r < rooms.length; r++) {
+                for (int p = 0; p < PERIODS; p++) {
+                    owner[r][p] = fixedRoomBusy[r][p] ? FIXED : FREE;
+                }
+            }
+        }
+
+        private Solution run() {
+            boolean[] attempted = new boolean[courses.length];
+            List<Integer> unplaced = new ArrayList<>();
+            for (int step = 0; step < courses.length; step++) {
+                int c = nextCourse(attempted);
+                attempted[c] = true;
+                if (!placeBest(c, -1, -1) && !repair(c)) {
+                    unplaced.add(c);
+                }
+            }
+            improvePreferences();
+            List<Integer> stillUnplaced = new ArrayList<>();
+            for (int c : unplaced) {
+                if (!placeBest(c, -1, -1) && !repair(c)) {
+                    stillUnplaced.add(c);
+                }
+            }
+            return toSolution(stillUnplaced);
+        }
+
+        private int nextCourse(boolean[] attempted) {
+            int best = -1;
+            for (int c = 0; c < courses.length; c++) {
+                if (attempted[c]) {
+                    continue;
+                }
+                if (best < 0 || compare(c, best) < 0) {
+                    best = c;
+                }
+            }
+            return best;
+        }
+
+        private int compare(int first, int second) {
+            if (saturation[first] != saturation[second]) {
+                return saturation[second] - saturation[first];
+            }
+            if (neighbors[first].length != neighbors[second].length) {
+                return neighbors[second].length - neighbors[first].length;
+            }
+            if (fittingRooms[first] != fittingRooms[second]) {
+                return fittingRooms[first] - fittingRooms[second];
+            }
+            return Integer.compare(tieBreak[first], tieBreak[second]);
+        }
+
+        /**
+         * Places a course at its best feasible position.
+         *
+         * @param c           course index
+         * @param avoidPeriod period not to use together with avoidRoom, or -1
+         * @param avoidRoom   room not to use in avoidPeriod, or -1
+         * @return true when the course was placed
+         */
+        private boolean placeBest(int c, int avoidPeriod, int avoidRoom) {
+            long bestScore = Long.MAX_VALUE;
+            int bestPeriod = -1;
+            int bestRoom = -1;
+            for (int i = 0; i < PERIODS; i++) {
+                int p = (i + periodOffset) % PERIODS;
+                if (blocked[c][p] > 0) {
+                    continue;
+                }
+                int r = bestRoom(c, p, p == avoidPeriod ? avoidRoom : -1);
+                if (r < 0) {
+                    continue;
+                }
+                long score = score(c, p, r);
+                if (score < bestScore) {
+                    bestScore = score;
+                    bestPeriod = p;
+                    bestRoom = r;
+                }
+            }
+            if (bestPeriod < 0) {
+                return false;
+            }
+            assign(c, bestPeriod, bestRoom);
+            return true;
+        }
+
+        private int bestRoom(int c, int p, int avoidRoom) {
+            int preferred = preferredRoom[c];
+            if (preferred >= 0 && preferred != avoidRoom && fits(c, preferred, p)) {
+                return preferred;
+            }
+            for (int r = 0; r < rooms.length; r++) {
+                if (r != avoidRoom && fits(c, r, p)) {
+                    return r;
+                }
+            }
+            return -1;
+        }
+
+        private boolean fits(int c, int r, int p) {
+            return owner[r][p] == FREE && rooms[r].getCapacity() >= enrolled[c];
+        }
+
+        private int softCost(int c, int p, int r) {
+            int cost = preferredRoom[c] >= 0 && preferredRoom[c] != r ? 1 : 0;
+            return preferredPeriod[c] >= 0 && preferredPeriod[c] != p ? cost + 1 : cost;
+        }
+
+        private long score(int c, int p, int r) {
+            long soft = softCost(c, p, r);
+            long constraining = 0;
+            for (int neighbor : neighbors[c]) {
+                if (period[neighbor] == FREE && blocked[neighbor][p] == 0) {
+                    constraining++;
+                }
+            }
+            long waste = rooms[r].getCapacity() - enrolled[c];
+            return (soft << 48) + (constraining << 24) + Math.min(waste, (1 << 24) - 1);
+        }
+
+        /**
+         * Frees a position for the course by moving a single blocking course somewhere else.
+         *
+         * @param c course index
+         * @return true when the course was placed
+         */
+        private boolean repair(int c) {
+            for (int p = 0; p < PERIODS; p++) {
+                if (fixedBlocked[c][p] > 0) {
+                    continue;
+                }
+                int blocker = -1;
+                int count = 0;
+                for (int neighbor : neighbors[c]) {
+                    if (period[neighbor] == p) {
+                        blocker = neighbor;
+                        count++;
+                    }
+                }
+                if (count > 1) {
+                    continue;
+                }
+                if (count == 1) {
+                    if (tryEject(c, blocker, p, -1)) {
+                        return true;
+                    }
+                    continue;
+                }
+                for (int r = 0; r < rooms.length; r++) {
+                    int occupant = owner[r][p];
+                    if (occupant >= 0 && rooms[r].getCapacity() >= enrolled[c] && tryEject(c, occupant, p, r)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private boolean tryEject(int c, int blocker, int p, int r) {
+            int oldPeriod = period[blocker];
+            int oldRoom = room[blocker];
+            unassign(blocker);
+            int target = r >= 0 ? r : bestRoom(c, p, -1);
+            if (blocked[c][p] == 0 && target >= 0 && fits(c, target, p)) {
+                assign(c, p, target);
+                if (placeBest(blocker, oldPeriod, oldRoom)) {
+                    return true;
+                }
+                unassign(c);
+            }
+            assign(blocker, oldPeriod, oldRoom);
+            return false;
+        }
+
+        private void improvePreferences() {
+            for (int c = 0; c < courses.length; c++) {
+                if (period[c] != FREE && softCost(c, period[c], room[c]) > 0) {
+                    // The old position stays feasible, and soft cost dominates the score, so this never gets worse.
+                    unassign(c);
+                    placeBest(c, -1, -1);
+                }
+            }
+        }
+
+        private void assign(int c, int p, int r) {
+            period[c] = p;
+            room[c] = r;
+            owner[r][p] = c;
+            for (int neighbor : neighbors[c]) {
+                if (blocked[neighbor][p]++ == 0) {
+                    saturation[neighbor]++;
+                }
+            }
+        }
+
+        private void unassign(int c) {
+            int p = period[c];
+            owner[room[c]][p] = FREE;
+            period[c] = FREE;
+            room[c] = FREE;
+            for (int neighbor : neighbors[c]) {
+                if (--blocked[neighbor][p] == 0) {
+                    saturation[neighbor]--;
+                }
+            }
+        }
+
+        private Solution toSolution(List<Integer> unplaced) {
+            List<ScheduleSlot> slots = new ArrayList<>();
+            int softViolations = 0;
+            for (int c = 0; c < courses.length; c++) {
+                if (period[c] == FREE) {
+                    continue;
+                }
+                LocalTime start = startOf(period[c]);
+                slots.add(ScheduleSlot.create(courses[c].getCourseId(), rooms[room[c]].getRoomId(), dayOf(period[c]),
+                        start, start.plusMinutes(PERIOD_MINUTES)));
+                softViolations += softCost(c, period[c], room[c]);
+            }
+            List<String> unplacedIds = new ArrayList<>();
+            for (int c : unplaced) {
+                unplacedIds.add(courses[c].getCourseId());
+            }
+            return new Solution(slots, unplacedIds, softViolations);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package scrms.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes one record written by {@link BinaryWriter} from a byte range. Only absolute reads are used, so
+ * several readers can share a buffer, e.g. a mapped snapshot parsed on several threads. Every decoded
+ * string is copied out of the buffer.
+ */
+public final class BinaryReader {
+
+    private static final ClassValue<Enum<?>[]> ENUM_CONSTANTS = new ClassValue<>() {
+        @Override
+        protected Enum<?>[] computeValue(Class<?> type) {
+            return (Enum<?>[]) type.getEnumConstants();
+        }
+    };
+
+    private final ByteBuffer bytes;
+    private final int end;
+    private int position;
+
+    /**
+     * Creates a reader over a byte range.
+     *
+     * @param bytes backing buffer
+     * @param start offset of the first byte of the record
+     * @param end   offset one past the last byte of the record
+     */
+    public BinaryReader(ByteBuffer bytes, int start, int end) {
+        this.bytes = bytes;
+        this.position = start;
+        this.end = end;
+    }
+
+    /**
+     * @return string value, or null
+     */
+    public String readString() {
+        int length = readInt();
+        if (length == BinaryWriter.NULL_LENGTH) {
+            return null;
+        }
+        require(length);
+        String value;
+        if (bytes.hasArray()) {
+            value = new String(bytes.array(), bytes.arrayOffset() + position, length, StandardCharsets.UTF_8);
+        } else {
+            byte[] copy = new byte[length];
+            bytes.get(position, copy);
+            value = new String(copy, StandardCharsets.UTF_8);
+        }
+        position += length;
+        return value;
+    }
+
+    /**
+     * @return four-byte integer
+     */
+    public int readInt() {
+        require(Integer.BYTES);
+        int value = bytes.getInt(position);
+        position += Integer.BYTES;
+        return value;
+    }
+
+    /**
+     * @return floating point number
+     */
+    public double readDouble() {
+        long high = readInt() & 0xFFFFFFFFL;
+        long low = readInt() & 0xFFFFFFFFL;
+        return Double.longBitsToDouble(high << 32 | low);
+    }
+
+    /**
+     * @return boolean flag
+     */
+    public boolean readBoolean() {
+        require(1);
+        return bytes.get(position++) != 0;
+    }
+
+    /**
+     * @return date, or null
+     */
+    public LocalDate readLocalDate() {
+        int epochDay = readInt();
+        return epochDay == BinaryWriter.NULL_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    /**
+     * @return time, or null
+     */
+    public LocalTime readLocalTime() {
+        int second = readInt();
+        return second == BinaryWriter.NULL_TIME ? null : LocalTime.ofSecondOfDay(second);
+    }
+
+    /**
+     * @param type enum class
+     * @param <E>  enum type
+     * @return constant with the stored ordinal, or null
+     */
+    public <E extends Enum<E>> E readEnum(Class<E> type) {
+        int ordinal = readInt();
+        if (ordinal == BinaryWriter.NULL_ORDINAL) {
+            return null;
+        }
+        Enum<?>[] constants = ENUM_CONSTANTS.get(type);
+        if (ordinal < 0 || ordinal >= constants.length) {
+            throw new IllegalArgumentException("No " + type.getSimpleName() + " with ordinal " + ordinal);
+        }
+        return type.cast(constants[ordinal]);
+    }
+
+    /**
+     * @return strings written with {@link BinaryWriter#strings}
+     */
+    public List<String> readStrings() {
+        int size = readInt();
+        if (size < 0) {
+            throw new IllegalArgumentException("Negative collection size " + size);
+        }
+        List<String> values = new ArrayList<>(Math.min(size, end - position));
+        for (int i = 0; i < size; i++) {
+            values.add(readString());
+        }
+        return values;
+    }
+
+    private void require(int length) {
+        if (length < 0 || end - position < length) {
+            throw new IllegalArgumentException("Truncated binary record at offset " + position);
+        }
+    }
+}
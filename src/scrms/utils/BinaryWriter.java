@@ -0,0 +1,163 @@
+package scrms.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Encodes one record of typed fields into a reusable byte buffer for the binary snapshots.
+ * <p>
+ * Strings are written as a length followed by their UTF-8 bytes, dates as epoch days, times as seconds
+ * of the day and enums as ordinals, all big-endian. Nothing describes the fields, so a model's
+ * {@code writeBinary} and {@code fromBinary} must list them in the same order; changing that order means
+ * bumping the snapshot version. {@link BinaryReader} decodes the format.
+ */
+public final class BinaryWriter {
+
+    static final int NULL_LENGTH = -1;
+    static final int NULL_DATE = Integer.MIN_VALUE;
+    static final int NULL_TIME = -1;
+    static final int NULL_ORDINAL = -1;
+
+    private byte[] buffer = new byte[256];
+    private int count;
+
+    /**
+     * Discards the current record so the buffer can be reused for the next one.
+     *
+     * @return this writer
+     */
+    public BinaryWriter reset() {
+        count = 0;
+        return this;
+    }
+
+    /**
+     * @return number of bytes of the current record
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Copies the current record into the destination.
+     *
+     * @param destination buffer with at least {@link #size()} bytes remaining
+     */
+    public void writeTo(ByteBuffer destination) {
+        destination.put(buffer, 0, count);
+    }
+
+    /**
+     * Writes a string, or null.
+     *
+     * @param value text to write
+     * @return this writer
+     */
+    public BinaryWriter value(String value) {
+        if (value == null) {
+            return value(NULL_LENGTH);
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        value(bytes.length);
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+        return this;
+    }
+
+    /**
+     * Writes a four-byte integer.
+     *
+     * @param value number to write
+     * @return this writer
+     */
+    public BinaryWriter value(int value) {
+        ensure(Integer.BYTES);
+        buffer[count++] = (byte) (value >>> 24);
+        buffer[count++] = (byte) (value >>> 16);
+        buffer[count++] = (byte) (value >>> 8);
+        buffer[count++] = (byte) value;
+        return this;
+    }
+
+    /**
+     * Writes a floating point number as its eight IEEE 754 bytes.
+     *
+     * @param value number to write
+     * @return this writer
+     */
+    public BinaryWriter value(double value) {
+        long bits = Double.doubleToLongBits(value);
+        value((int) (bits >>> 32));
+        return value((int) bits);
+    }
+
+    /**
+     * Writes a boolean as one byte.
+     *
+     * @param value flag to write
+     * @return this writer
+     */
+    public BinaryWriter value(boolean value) {
+        ensure(1);
+        buffer[count++] = (byte) (value ? 1 : 0);
+        return this;
+    }
+
+    /**
+     * Writes a date as its epoch day, or null.
+     *
+     * @param value date to write
+     * @return this writer
+     */
+    public BinaryWriter value(LocalDate value) {
+        return value(value == null ? NULL_DATE : Math.toIntExact(value.toEpochDay()));
+    }
+
+    /**
+     * Writes a time as its second of the day, or null. Fractions of a second are not kept.
+     *
+     * @param value time to write
+     * @return this writer
+     */
+    public BinaryWriter value(LocalTime value) {
+        return value(value == null ? NULL_TIME : value.toSecondOfDay());
+    }
+
+    /**
+     * Writes an enum constant by ordinal, or null.
+     *
+     * @param value constant to write
+     * @return this writer
+     */
+    public BinaryWriter value(Enum<?> value) {
+        return value(value == null ? NULL_ORDINAL : value.ordinal());
+    }
+
+    /**
+     * Writes a collection of strings as a count followed by the values.
+     *
+     * @param values values to write, null writes an empty collection
+     * @return this writer
+     */
+    public BinaryWriter strings(Collection<String> values) {
+        if (values == null) {
+            return value(0);
+        }
+        value(values.size());
+        for (String value : values) {
+            value(value);
+        }
+        return this;
+    }
+
+    private void ensure(int extra) {
+        if (count + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + extra));
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package scrms.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-only character view over ASCII bytes of a buffer. Lets the JSON parsers scan mapped file
+ * content in place instead of decoding it into a {@code String} first.
+ */
+public final class ByteCharSequence implements CharSequence {
+
+    private final ByteBuffer bytes;
+    private final int start;
+    private final int end;
+
+    /**
+     * Creates a view over a byte range that contains only ASCII characters.
+     *
+     * @param bytes backing buffer, accessed with absolute reads only
+     * @param start index of the first byte
+     * @param end   index one past the last byte
+     */
+    public ByteCharSequence(ByteBuffer bytes, int start, int end) {
+        this.bytes = bytes;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (bytes.get(start + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        return new ByteCharSequence(bytes, start + from, start + to);
+    }
+
+    @Override
+    public String toString() {
+        byte[] copy = new byte[end - start];
+        bytes.get(start, copy);
+        return new String(copy, StandardCharsets.US_ASCII);
+    }
+}
@@ -2,19 +2,96 @@ package scrms.utils;
 
 import scrms.exceptions.PersistenceException;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * File utility helpers for reading and writing JSON resources.
+ * <p>
+ * Whole-file writes are crash safe: content goes to a temporary sibling file which is forced to disk
+ * unless the policy is {@link FsyncPolicy#NEVER} and then atomically renamed over the target, so readers
+ * only ever observe the previous or the new version. {@link FsyncPolicy#BATCHED} only thins out forces of
+ * appends, because skipping the force before a rename could expose an empty file after a power loss.
  */
 public final class FileUtils {
 
+    /**
+     * Minimum time between two forced appends to the same file under {@link FsyncPolicy#BATCHED}.
+     */
+    public static final long BATCH_INTERVAL_MILLIS = 1_000;
+
+    private static final Map<Path, Long> LAST_SYNC = new ConcurrentHashMap<>();
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> type = Class.forName("sun.misc.Unsafe");
+            Field field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            unsafe = null;
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
     private FileUtils() {
     }
 
+    /**
+     * Callback that streams file content into a writer.
+     */
+    @FunctionalInterface
+    public interface ContentWriter {
+
+        /**
+         * Writes the content.
+         *
+         * @param writer destination, closed by the caller
+         * @throws IOException when writing fails
+         */
+        void write(Writer writer) throws IOException;
+    }
+
+    /**
+     * Callback that writes raw bytes into a file channel.
+     */
+    @FunctionalInterface
+    public interface ChannelWriter {
+
+        /**
+         * Writes the content.
+         *
+         * @param channel destination, closed by the caller
+         * @throws IOException when writing fails
+         */
+        void write(FileChannel channel) throws IOException;
+    }
+
     /**
      * Ensures the parent directory of the provided path exists.
      *
@@ -45,6 +122,23 @@ public final class FileUtils {
         }
     }
 
+    /**
+     * Opens a streaming reader over the file. Missing files yield an empty reader.
+     *
+     * @param path file path
+     * @return UTF-8 reader positioned at the start of the file
+     */
+    public static Reader openReader(Path path) {
+        try {
+            if (!Files.exists(path)) {
+                return Reader.nullReader();
+            }
+            return Files.newBufferedReader(path, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new PersistenceException("Unable to read file " + path, e);
+        }
+    }
+
     /**
      * Writes the provided content into the file.
      *
@@ -52,11 +146,160 @@ public final class FileUtils {
      * @param content file content
      */
     public static void writeFile(Path path, String content) {
+        writeFile(path, writer -> writer.write(content));
+    }
+
+    /**
+     * Streams content into the file without materializing it first, forcing it to disk before the rename.
+     *
+     * @param path    file path
+     * @param content callback producing the file content
+     */
+    public static void writeFile(Path path, ContentWriter content) {
+        writeFile(path, content, FsyncPolicy.ALWAYS);
+    }
+
+    /**
+     * Streams content into a temporary sibling file and atomically renames it over the target.
+     *
+     * @param path    file path
+     * @param content callback producing the file content
+     * @param policy  NEVER skips forcing the temporary file before the rename
+     */
+    public static void writeFile(Path path, ContentWriter content, FsyncPolicy policy) {
+        writeChannel(path, channel -> {
+            Writer writer = new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8);
+            content.write(writer);
+            writer.flush();
+        }, policy);
+    }
+
+    /**
+     * Writes raw bytes into a temporary sibling file and atomically renames it over the target.
+     *
+     * @param path    file path
+     * @param content callback producing the file content
+     * @param policy  NEVER skips forcing the temporary file before the rename
+     */
+    public static void writeChannel(Path path, ChannelWriter content, FsyncPolicy policy) {
+        ensureParent(path);
+        Path temp = null;
         try {
-            ensureParent(path);
-            Files.writeString(path, content, StandardCharsets.UTF_8);
+            temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                content.write(channel);
+                if (policy != FsyncPolicy.NEVER) {
+                    channel.force(true);
+                }
+            }
+            moveAtomically(temp, path);
+            if (policy == FsyncPolicy.ALWAYS) {
+                syncDirectory(path.getParent());
+            }
         } catch (IOException e) {
             throw new PersistenceException("Unable to write file " + path, e);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // Best effort cleanup of a temporary file left behind by a failed write.
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends text to the end of the file, creating it when missing.
+     *
+     * @param path   file path
+     * @param text   text to append
+     * @param policy whether the appended data is forced to disk
+     */
+    public static void appendFile(Path path, String text, FsyncPolicy policy) {
+        ensureParent(path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(text);
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            if (shouldSync(path, policy)) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new PersistenceException("Unable to append to file " + path, e);
+        }
+    }
+
+    /**
+     * Exposes the first {@code size} bytes of a file for reading. The file is mapped when mappings can be
+     * released explicitly with {@link #release(ByteBuffer)}; otherwise it is read into a heap buffer, because
+     * a mapping left to the garbage collector keeps the file locked on Windows and a later snapshot rename
+     * over it would fail.
+     *
+     * @param channel channel opened for reading
+     * @param size    number of bytes to expose, at most {@link Integer#MAX_VALUE}
+     * @return buffer over the file content
+     * @throws IOException when reading or mapping fails
+     */
+    public static ByteBuffer mapReadOnly(FileChannel channel, long size) throws IOException {
+        if (INVOKE_CLEANER != null) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(Math.toIntExact(size));
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, bytes.position()) < 0) {
+                throw new EOFException("File shrank while reading " + size + " bytes");
+            }
+        }
+        return bytes.flip();
+    }
+
+    /**
+     * Unmaps a buffer returned by {@link #mapReadOnly(FileChannel, long)} right away; heap buffers are left
+     * alone. The buffer and every view over it must no longer be accessed afterwards.
+     *
+     * @param bytes buffer to release
+     */
+    public static void release(ByteBuffer bytes) {
+        if (!(bytes instanceof MappedByteBuffer) || INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, bytes);
+        } catch (ReflectiveOperationException | RuntimeException ignored) {
+            // The garbage collector still releases the mapping eventually.
+        }
+    }
+
+    private static boolean shouldSync(Path path, FsyncPolicy policy) {
+        if (policy != FsyncPolicy.BATCHED) {
+            return policy == FsyncPolicy.ALWAYS;
+        }
+        long now = System.nanoTime();
+        Path key = path.toAbsolutePath();
+        Long last = LAST_SYNC.get(key);
+        if (last != null && now - last < TimeUnit.MILLISECONDS.toNanos(BATCH_INTERVAL_MILLIS)) {
+            return false;
+        }
+        LAST_SYNC.put(key, now);
+        return true;
+    }
+
+    private static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+            // Some platforms cannot open directories for syncing; the rename itself is still atomic.
         }
     }
 }
@@ -0,0 +1,20 @@
+package scrms.utils;
+
+/**
+ * Controls how often written data is forced to the storage device.
+ */
+public enum FsyncPolicy {
+    /**
+     * Force every write before it is considered complete.
+     */
+    ALWAYS,
+    /**
+     * Force journal appends at most once per batch interval for each file, relying on the OS cache in
+     * between; whole-file replacements are still forced before their rename.
+     */
+    BATCHED,
+    /**
+     * Never force explicitly and leave flushing entirely to the OS.
+     */
+    NEVER
+}
@@ -0,0 +1,174 @@
+package scrms.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Sorted-start interval index over closed integer ranges, e.g. seconds of a day.
+ * <p>
+ * Intervals are kept ordered by start together with the running maximum of their ends. An overlap query
+ * binary-searches the last interval starting at or before the query end and compares that prefix maximum
+ * with the query start, so a check costs O(log k). Two intervals overlap when they share at least one
+ * point, which matches the inclusive conflict rule used by the timetable and bookings.
+ *
+ * @param <E> value attached to each interval
+ */
+public final class IntervalIndex<E> {
+
+    private int[] starts = new int[4];
+    private int[] ends = new int[4];
+    private int[] maxEnds = new int[4];
+    private Object[] values = new Object[4];
+    private int size;
+
+    /**
+     * Adds an interval.
+     *
+     * @param start first point, inclusive
+     * @param end   last point, inclusive
+     * @param value value attached to the interval
+     */
+    public void add(int start, int end, E value) {
+        if (size == starts.length) {
+            int capacity = size * 2;
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            maxEnds = Arrays.copyOf(maxEnds, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        int index = lastStartingAtOrBefore(start) + 1;
+        int tail = size - index;
+        System.arraycopy(starts, index, starts, index + 1, tail);
+        System.arraycopy(ends, index, ends, index + 1, tail);
+        System.arraycopy(values, index, values, index + 1, tail);
+        starts[index] = start;
+        ends[index] = end;
+        values[index] = value;
+        size++;
+        recomputeFrom(index);
+    }
+
+    /**
+     * Removes the interval carrying the value.
+     *
+     * @param value value to remove, compared by identity
+     * @return true when an interval was removed
+     */
+    public boolean remove(E value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                int tail = size - i - 1;
+                System.arraycopy(starts, i + 1, starts, i, tail);
+                System.arraycopy(ends, i + 1, ends, i, tail);
+                System.arraycopy(values, i + 1, values, i, tail);
+                values[--size] = null;
+                recomputeFrom(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether any interval overlaps the range.
+     *
+     * @param start first point, inclusive
+     * @param end   last point, inclusive
+     * @return true when an overlapping interval exists
+     */
+    public boolean overlaps(int start, int end) {
+        int last = lastStartingAtOrBefore(end);
+        return last >= 0 && maxEnds[last] >= start;
+    }
+
+    /**
+     * Checks whether any interval accepted by the filter overlaps the range. Intervals are visited
+     * backwards from the last candidate only while the prefix maximum still reaches the range.
+     *
+     * @param start  first point, inclusive
+     * @param end    last point, inclusive
+     * @param filter predicate selecting the intervals that count
+     * @return true when an accepted overlapping interval exists
+     */
+    public boolean overlaps(int start, int end, Predicate<E> filter) {
+        for (int i = lastStartingAtOrBefore(end); i >= 0 && maxEnds[i] >= start; i--) {
+            if (ends[i] >= start && filter.test(value(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lists the values of all intervals overlapping the range.
+     *
+     * @param start first point, inclusive
+     * @param end   last point, inclusive
+     * @return values ordered by interval start
+     */
+    public List<E> overlapping(int start, int end) {
+        List<E> result = new ArrayList<>();
+        for (int i = lastStartingAtOrBefore(end); i >= 0 && maxEnds[i] >= start; i--) {
+            if (ends[i] >= start) {
+                result.add(value(i));
+            }
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * @return values of all intervals ordered by start
+     */
+    public List<E> values() {
+        List<E> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(value(i));
+        }
+        return result;
+    }
+
+    /**
+     * @return number of intervals
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true when no interval is stored
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private int lastStartingAtOrBefore(int point) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (starts[middle] <= point) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+
+    private void recomputeFrom(int index) {
+        int max = index == 0 ? Integer.MIN_VALUE : maxEnds[index - 1];
+        for (int i = index; i < size; i++) {
+            max = Math.max(max, ends[i]);
+            maxEnds[i] = max;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private E value(int index) {
+        return (E) values[index];
+    }
+}
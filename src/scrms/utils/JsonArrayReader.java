@@ -0,0 +1,116 @@
+package scrms.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Streaming tokenizer that yields the elements of a top-level JSON array one at a time.
+ * Only the element currently being read is held in memory, so arbitrarily large files can be
+ * consumed with a footprint of roughly one record.
+ */
+public final class JsonArrayReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder element = new StringBuilder();
+    private int position;
+    private int limit;
+    private boolean started;
+    private boolean finished;
+
+    /**
+     * Creates a tokenizer over the provided character source.
+     *
+     * @param reader source positioned before the opening bracket
+     */
+    public JsonArrayReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Reads the next array element.
+     *
+     * @return trimmed element text, or null when the array is exhausted
+     * @throws IOException when the underlying reader fails
+     */
+    public String next() throws IOException {
+        if (finished) {
+            return null;
+        }
+        if (!started) {
+            int c = skipWhitespace();
+            if (c != '[') {
+                finished = true;
+                return null;
+            }
+            position++;
+            started = true;
+        }
+        int c = skipWhitespace();
+        while (c == ',') {
+            position++;
+            c = skipWhitespace();
+        }
+        if (c == -1 || c == ']') {
+            finished = true;
+            return null;
+        }
+        element.setLength(0);
+        boolean inQuotes = false;
+        boolean escaped = false;
+        int depth = 0;
+        while ((c = peek()) != -1) {
+            if (inQuotes) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inQuotes = false;
+                }
+            } else if (c == '"') {
+                inQuotes = true;
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                if (depth == 0) {
+                    break;
+                }
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                break;
+            }
+            element.append((char) c);
+            position++;
+        }
+        return element.toString().trim();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private int skipWhitespace() throws IOException {
+        int c;
+        while ((c = peek()) != -1 && Character.isWhitespace(c)) {
+            position++;
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position];
+    }
+}
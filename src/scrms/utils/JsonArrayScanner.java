@@ -0,0 +1,146 @@
+package scrms.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Locates the elements of a top-level JSON array directly in UTF-8 bytes, e.g. a memory-mapped file.
+ * All structural characters are ASCII and can never appear inside a multi-byte UTF-8 sequence, so the
+ * scan works on raw bytes without decoding them.
+ */
+public final class JsonArrayScanner {
+
+    private final ByteBuffer bytes;
+    private final int limit;
+    private int position;
+    private int start;
+    private int end;
+    private boolean ascii;
+    private boolean started;
+
+    /**
+     * Creates a scanner over the readable bytes of the buffer.
+     *
+     * @param bytes UTF-8 encoded JSON array, accessed with absolute reads only
+     */
+    public JsonArrayScanner(ByteBuffer bytes) {
+        this.bytes = bytes;
+        this.position = bytes.position();
+        this.limit = bytes.limit();
+    }
+
+    /**
+     * Advances to the next element.
+     *
+     * @return true when an element was found
+     */
+    public boolean next() {
+        if (!started) {
+            skipWhitespace();
+            if (position >= limit || bytes.get(position) != '[') {
+                position = limit;
+                return false;
+            }
+            position++;
+            started = true;
+        }
+        skipWhitespace();
+        while (position < limit && bytes.get(position) == ',') {
+            position++;
+            skipWhitespace();
+        }
+        if (position >= limit || bytes.get(position) == ']') {
+            position = limit;
+            return false;
+        }
+        start = position;
+        ascii = true;
+        boolean inQuotes = false;
+        int depth = 0;
+        int lastContent = position;
+        while (position < limit) {
+            byte b = bytes.get(position);
+            if (b < 0) {
+                ascii = false;
+            } else if (inQuotes) {
+                if (b == '\\') {
+                    position++;
+                } else if (b == '"') {
+                    inQuotes = false;
+                }
+            } else if (b == '"') {
+                inQuotes = true;
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                if (depth == 0) {
+                    break;
+                }
+                depth--;
+            } else if (b == ',' && depth == 0) {
+                break;
+            }
+            if (b < 0 || b > ' ') {
+                lastContent = position;
+            }
+            position++;
+        }
+        end = lastContent + 1;
+        return true;
+    }
+
+    /**
+     * @return offset of the first byte of the current element
+     */
+    public int start() {
+        return start;
+    }
+
+    /**
+     * @return offset one past the last byte of the current element
+     */
+    public int end() {
+        return end;
+    }
+
+    /**
+     * Exposes the current element as characters: a zero-copy view for ASCII content, otherwise a
+     * decoded string of just this element.
+     *
+     * @return element text
+     */
+    public CharSequence element() {
+        return chars(bytes, start, end, ascii);
+    }
+
+    /**
+     * @return true when the current element contains only ASCII bytes
+     */
+    public boolean isAscii() {
+        return ascii;
+    }
+
+    /**
+     * Exposes a byte range as characters.
+     *
+     * @param bytes backing buffer
+     * @param start offset of the first byte
+     * @param end   offset one past the last byte
+     * @param ascii whether the range is known to be pure ASCII
+     * @return zero-copy view for ASCII ranges, decoded text otherwise
+     */
+    public static CharSequence chars(ByteBuffer bytes, int start, int end, boolean ascii) {
+        if (ascii) {
+            return new ByteCharSequence(bytes, start, end);
+        }
+        byte[] copy = new byte[end - start];
+        bytes.get(start, copy);
+        return new String(copy, StandardCharsets.UTF_8);
+    }
+
+    private void skipWhitespace() {
+        while (position < limit && bytes.get(position) >= 0 && bytes.get(position) <= ' ') {
+            position++;
+        }
+    }
+}
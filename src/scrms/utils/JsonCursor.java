@@ -0,0 +1,430 @@
+package scrms.utils;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Forward-only reader over a single JSON object held in a character range.
+ * <p>
+ * Models walk the fields with {@link #nextField()}, test the current key with {@link #nameIs(String)} and
+ * read the value with one of the typed accessors. Keys are compared in place and numbers, dates and enums
+ * are decoded straight from the characters, so no intermediate map or substring is created. Values that
+ * are not read are skipped automatically on the next call to {@link #nextField()}.
+ */
+public final class JsonCursor {
+
+    private static final ClassValue<Enum<?>[]> ENUM_CONSTANTS = new ClassValue<>() {
+        @Override
+        protected Enum<?>[] computeValue(Class<?> type) {
+            return (Enum<?>[]) type.getEnumConstants();
+        }
+    };
+
+    private final CharSequence text;
+    private final int end;
+    private int position;
+    private int nameStart;
+    private int nameEnd;
+    private boolean started;
+    private boolean valuePending;
+
+    /**
+     * Creates a cursor over the complete text.
+     *
+     * @param text JSON object text
+     */
+    public JsonCursor(CharSequence text) {
+        this(text, 0, text.length());
+    }
+
+    /**
+     * Creates a cursor over a slice of the provided text.
+     *
+     * @param text  backing characters
+     * @param start index of the first character of the object
+     * @param end   index one past the last character of the object
+     */
+    public JsonCursor(CharSequence text, int start, int end) {
+        this.text = text;
+        this.position = start;
+        this.end = end;
+    }
+
+    /**
+     * Advances to the next field of the object.
+     *
+     * @return true when a field is available, false once the closing brace is reached
+     */
+    public boolean nextField() {
+        if (!started) {
+            skipWhitespace();
+            expect('{');
+            started = true;
+        } else if (valuePending) {
+            skipValue();
+        }
+        skipWhitespace();
+        if (position < end && text.charAt(position) == ',') {
+            position++;
+            skipWhitespace();
+        }
+        if (position >= end || text.charAt(position) == '}') {
+            position = Math.min(position + 1, end);
+            return false;
+        }
+        expect('"');
+        nameStart = position;
+        position = closingQuote(position);
+        nameEnd = position;
+        position++;
+        skipWhitespace();
+        expect(':');
+        skipWhitespace();
+        valuePending = true;
+        return true;
+    }
+
+    /**
+     * Compares the current field name without allocating.
+     *
+     * @param name expected field name
+     * @return true when the current field has the provided name
+     */
+    public boolean nameIs(String name) {
+        int length = nameEnd - nameStart;
+        if (length != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (text.charAt(nameStart + i) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the current value as a string.
+     *
+     * @return unescaped text, or null for a JSON null
+     */
+    public String readString() {
+        valuePending = false;
+        if (consumeNull()) {
+            return null;
+        }
+        expect('"');
+        int start = position;
+        int close = closingQuote(start);
+        position = close + 1;
+        for (int i = start; i < close; i++) {
+            if (text.charAt(i) == '\\') {
+                return unescape(start, close);
+            }
+        }
+        return text.subSequence(start, close).toString();
+    }
+
+    /**
+     * Reads the current value as an integer.
+     *
+     * @return parsed number
+     */
+    public int readInt() {
+        valuePending = false;
+        boolean negative = position < end && text.charAt(position) == '-';
+        if (negative) {
+            position++;
+        }
+        int start = position;
+        int value = 0;
+        while (position < end && isDigit(text.charAt(position))) {
+            value = value * 10 + (text.charAt(position) - '0');
+            position++;
+        }
+        if (position == start) {
+            throw malformed("number");
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Reads the current value as a floating point number.
+     *
+     * @return parsed number
+     */
+    public double readDouble() {
+        valuePending = false;
+        int start = position;
+        while (position < end && isNumberChar(text.charAt(position))) {
+            position++;
+        }
+        if (position == start) {
+            throw malformed("number");
+        }
+        return Double.parseDouble(text.subSequence(start, position).toString());
+    }
+
+    /**
+     * Reads the current value as a boolean literal.
+     *
+     * @return parsed flag
+     */
+    public boolean readBoolean() {
+        valuePending = false;
+        if (matches("true")) {
+            position += 4;
+            return true;
+        }
+        if (matches("false")) {
+            position += 5;
+            return false;
+        }
+        throw malformed("boolean");
+    }
+
+    /**
+     * Reads an ISO-8601 date string such as "2024-03-01".
+     *
+     * @return parsed date, or null for a JSON null
+     */
+    public LocalDate readLocalDate() {
+        valuePending = false;
+        if (consumeNull()) {
+            return null;
+        }
+        expect('"');
+        int start = position;
+        int close = closingQuote(start);
+        position = close + 1;
+        if (close - start == 10 && text.charAt(start + 4) == '-' && text.charAt(start + 7) == '-') {
+            return LocalDate.of(digits(start, 4), digits(start + 5, 2), digits(start + 8, 2));
+        }
+        return LocalDate.parse(text.subSequence(start, close));
+    }
+
+    /**
+     * Reads an ISO-8601 time string such as "08:00" or "08:00:30".
+     *
+     * @return parsed time, or null for a JSON null
+     */
+    public LocalTime readLocalTime() {
+        valuePending = false;
+        if (consumeNull()) {
+            return null;
+        }
+        expect('"');
+        int start = position;
+        int close = closingQuote(start);
+        position = close + 1;
+        int length = close - start;
+        if ((length == 5 || length == 8) && text.charAt(start + 2) == ':') {
+            int hour = digits(start, 2);
+            int minute = digits(start + 3, 2);
+            if (length == 5) {
+                return LocalTime.of(hour, minute);
+            }
+            if (text.charAt(start + 5) == ':') {
+                return LocalTime.of(hour, minute, digits(start + 6, 2));
+            }
+        }
+        return LocalTime.parse(text.subSequence(start, close));
+    }
+
+    /**
+     * Reads an enum constant by name.
+     *
+     * @param type enum class
+     * @param <E>  enum type
+     * @return matching constant, or null for a JSON null
+     */
+    public <E extends Enum<E>> E readEnum(Class<E> type) {
+        valuePending = false;
+        if (consumeNull()) {
+            return null;
+        }
+        expect('"');
+        int start = position;
+        int close = closingQuote(start);
+        position = close + 1;
+        for (Enum<?> constant : ENUM_CONSTANTS.get(type)) {
+            if (regionEquals(start, close, constant.name())) {
+                return type.cast(constant);
+            }
+        }
+        throw new IllegalArgumentException("No enum constant " + type.getSimpleName() + "."
+                + text.subSequence(start, close));
+    }
+
+    /**
+     * Reads an array of strings.
+     *
+     * @return list of values, empty for a JSON null
+     */
+    public List<String> readStringArray() {
+        valuePending = false;
+        List<String> values = new ArrayList<>();
+        if (consumeNull()) {
+            return values;
+        }
+        expect('[');
+        skipWhitespace();
+        while (position < end && text.charAt(position) != ']') {
+            values.add(readString());
+            skipWhitespace();
+            if (position < end && text.charAt(position) == ',') {
+                position++;
+                skipWhitespace();
+            }
+        }
+        expect(']');
+        return values;
+    }
+
+    /**
+     * Returns the raw text of the current value, e.g. a nested object to hand to another reader.
+     *
+     * @return characters spanning the value
+     */
+    public CharSequence readRaw() {
+        int start = position;
+        skipValue();
+        return text.subSequence(start, position);
+    }
+
+    /**
+     * Skips the current value, including nested objects and arrays.
+     */
+    public void skipValue() {
+        valuePending = false;
+        int depth = 0;
+        while (position < end) {
+            char c = text.charAt(position);
+            if (c == '"') {
+                position = closingQuote(position + 1) + 1;
+                if (depth == 0) {
+                    return;
+                }
+                continue;
+            }
+            if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                if (depth == 0) {
+                    return;
+                }
+                depth--;
+                if (depth == 0) {
+                    position++;
+                    return;
+                }
+            } else if (c == ',' && depth == 0) {
+                return;
+            }
+            position++;
+        }
+    }
+
+    private String unescape(int start, int close) {
+        StringBuilder builder = new StringBuilder(close - start);
+        for (int i = start; i < close; i++) {
+            char c = text.charAt(i);
+            if (c != '\\' || i + 1 >= close) {
+                builder.append(c);
+                continue;
+            }
+            char escaped = text.charAt(++i);
+            switch (escaped) {
+                case 'n' -> builder.append('\n');
+                case 'r' -> builder.append('\r');
+                case 't' -> builder.append('\t');
+                case 'b' -> builder.append('\b');
+                case 'f' -> builder.append('\f');
+                case 'u' -> {
+                    if (i + 4 >= close) {
+                        throw malformed("unicode escape");
+                    }
+                    builder.append((char) Integer.parseInt(text.subSequence(i + 1, i + 5).toString(), 16));
+                    i += 4;
+                }
+                default -> builder.append(escaped);
+            }
+        }
+        return builder.toString();
+    }
+
+    private int closingQuote(int from) {
+        for (int i = from; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '"') {
+                return i;
+            }
+        }
+        throw malformed("string");
+    }
+
+    private boolean consumeNull() {
+        if (matches("null")) {
+            position += 4;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean matches(String literal) {
+        return position + literal.length() <= end && regionEquals(position, position + literal.length(), literal);
+    }
+
+    private boolean regionEquals(int start, int stop, String value) {
+        if (stop - start != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (text.charAt(start + i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int digits(int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) {
+                throw malformed("digit");
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private void expect(char expected) {
+        if (position >= end || text.charAt(position) != expected) {
+            throw malformed("'" + expected + "'");
+        }
+        position++;
+    }
+
+    private void skipWhitespace() {
+        while (position < end && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isNumberChar(char c) {
+        return isDigit(c) || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E';
+    }
+
+    private IllegalArgumentException malformed(String expected) {
+        return new IllegalArgumentException("Malformed JSON: expected " + expected + " at offset " + position);
+    }
+}
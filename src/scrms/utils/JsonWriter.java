@@ -0,0 +1,364 @@
+package scrms.utils;
+
+import scrms.exceptions.PersistenceException;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.function.Consumer;
+
+/**
+ * Streaming JSON writer that serializes straight into a {@link Writer} through one reusable buffer.
+ * Models describe themselves with {@code name(..).value(..)} calls, so saving a store never builds a
+ * string per entity or for the whole array.
+ */
+public final class JsonWriter implements Flushable, Closeable {
+
+    /**
+     * Buffer size used for file output.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private static final int MAX_DEPTH = 32;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Writer out;
+    private final char[] buffer;
+    private final boolean[] hasElements = new boolean[MAX_DEPTH];
+    private int count;
+    private int depth;
+    private boolean afterName;
+
+    /**
+     * Creates a writer with the default buffer size.
+     *
+     * @param out destination
+     */
+    public JsonWriter(Writer out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a writer with a custom buffer size.
+     *
+     * @param out        destination
+     * @param bufferSize number of characters buffered before writing through
+     */
+    public JsonWriter(Writer out, int bufferSize) {
+        this.out = out;
+        this.buffer = new char[bufferSize];
+    }
+
+    /**
+     * Serializes into a string, for callers that still need a standalone JSON text.
+     *
+     * @param body callback writing a single value
+     * @return JSON text
+     */
+    public static String stringify(Consumer<JsonWriter> body) {
+        StringWriter target = new StringWriter();
+        JsonWriter writer = new JsonWriter(target, 256);
+        body.accept(writer);
+        writer.flush();
+        return target.toString();
+    }
+
+    /**
+     * Opens an object.
+     *
+     * @return this writer
+     */
+    public JsonWriter beginObject() {
+        beforeValue();
+        return open('{');
+    }
+
+    /**
+     * Closes the current object.
+     *
+     * @return this writer
+     */
+    public JsonWriter endObject() {
+        return close('}');
+    }
+
+    /**
+     * Opens an array.
+     *
+     * @return this writer
+     */
+    public JsonWriter beginArray() {
+        beforeValue();
+        return open('[');
+    }
+
+    /**
+     * Closes the current array.
+     *
+     * @return this writer
+     */
+    public JsonWriter endArray() {
+        return close(']');
+    }
+
+    /**
+     * Writes a field name inside an object.
+     *
+     * @param name field name
+     * @return this writer
+     */
+    public JsonWriter name(String name) {
+        separate();
+        writeString(name);
+        append(':');
+        afterName = true;
+        return this;
+    }
+
+    /**
+     * Writes a quoted and escaped string, or null.
+     *
+     * @param value text to write
+     * @return this writer
+     */
+    public JsonWriter value(String value) {
+        beforeValue();
+        if (value == null) {
+            appendLiteral("null");
+        } else {
+            writeString(value);
+        }
+        return this;
+    }
+
+    /**
+     * Writes an integral number.
+     *
+     * @param value number to write
+     * @return this writer
+     */
+    public JsonWriter value(long value) {
+        beforeValue();
+        if (value == Long.MIN_VALUE) {
+            appendLiteral(Long.toString(value));
+            return this;
+        }
+        if (value < 0) {
+            append('-');
+            value = -value;
+        }
+        writeDigits(value);
+        return this;
+    }
+
+    /**
+     * Writes a floating point number.
+     *
+     * @param value number to write
+     * @return this writer
+     */
+    public JsonWriter value(double value) {
+        beforeValue();
+        appendLiteral(Double.toString(value));
+        return this;
+    }
+
+    /**
+     * Writes a boolean literal.
+     *
+     * @param value flag to write
+     * @return this writer
+     */
+    public JsonWriter value(boolean value) {
+        beforeValue();
+        appendLiteral(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Writes an enum constant by name.
+     *
+     * @param value constant to write
+     * @return this writer
+     */
+    public JsonWriter value(Enum<?> value) {
+        return value(value == null ? null : value.name());
+    }
+
+    /**
+     * Writes a date in ISO-8601 form without formatting it to an intermediate string.
+     *
+     * @param value date to write
+     * @return this writer
+     */
+    public JsonWriter value(LocalDate value) {
+        if (value == null || value.getYear() < 0 || value.getYear() > 9999) {
+            return value(value == null ? null : value.toString());
+        }
+        beforeValue();
+        append('"');
+        writePadded(value.getYear(), 4);
+        append('-');
+        writePadded(value.getMonthValue(), 2);
+        append('-');
+        writePadded(value.getDayOfMonth(), 2);
+        append('"');
+        return this;
+    }
+
+    /**
+     * Writes a time in the same form as {@link LocalTime#toString()} without an intermediate string.
+     *
+     * @param value time to write
+     * @return this writer
+     */
+    public JsonWriter value(LocalTime value) {
+        if (value == null || value.getNano() != 0) {
+            return value(value == null ? null : value.toString());
+        }
+        beforeValue();
+        append('"');
+        writePadded(value.getHour(), 2);
+        append(':');
+        writePadded(value.getMinute(), 2);
+        if (value.getSecond() != 0) {
+            append(':');
+            writePadded(value.getSecond(), 2);
+        }
+        append('"');
+        return this;
+    }
+
+    /**
+     * Writes an array of strings.
+     *
+     * @param values values to write, null writes an empty array
+     * @return this writer
+     */
+    public JsonWriter stringArray(Iterable<String> values) {
+        beginArray();
+        if (values != null) {
+            for (String value : values) {
+                value(value);
+            }
+        }
+        return endArray();
+    }
+
+    @Override
+    public void flush() {
+        try {
+            out.write(buffer, 0, count);
+            count = 0;
+            out.flush();
+        } catch (IOException e) {
+            throw new PersistenceException("Unable to write JSON", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        try {
+            out.close();
+        } catch (IOException e) {
+            throw new PersistenceException("Unable to write JSON", e);
+        }
+    }
+
+    private JsonWriter open(char bracket) {
+        if (depth + 1 >= MAX_DEPTH) {
+            throw new IllegalStateException("JSON nesting too deep");
+        }
+        append(bracket);
+        hasElements[++depth] = false;
+        return this;
+    }
+
+    private JsonWriter close(char bracket) {
+        if (depth == 0) {
+            throw new IllegalStateException("No open JSON container to close");
+        }
+        depth--;
+        append(bracket);
+        return this;
+    }
+
+    private void beforeValue() {
+        if (afterName) {
+            afterName = false;
+        } else {
+            separate();
+        }
+    }
+
+    private void separate() {
+        if (hasElements[depth]) {
+            append(',');
+        }
+        hasElements[depth] = true;
+    }
+
+    private void writeString(String value) {
+        append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                append('\\');
+                append(c);
+            } else if (c == '\n') {
+                appendLiteral("\\n");
+            } else if (c == '\r') {
+                appendLiteral("\\r");
+            } else if (c == '\t') {
+                appendLiteral("\\t");
+            } else if (c < 0x20) {
+                appendLiteral("\\u00");
+                append(HEX[c >> 4]);
+                append(HEX[c & 0xF]);
+            } else {
+                append(c);
+            }
+        }
+        append('"');
+    }
+
+    private void writeDigits(long value) {
+        if (value >= 10) {
+            writeDigits(value / 10);
+        }
+        append((char) ('0' + value % 10));
+    }
+
+    private void writePadded(int value, int width) {
+        int divisor = 1;
+        for (int i = 1; i < width; i++) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            append((char) ('0' + (value / divisor) % 10));
+        }
+    }
+
+    private void appendLiteral(String literal) {
+        for (int i = 0; i < literal.length(); i++) {
+            append(literal.charAt(i));
+        }
+    }
+
+    private void append(char c) {
+        if (count == buffer.length) {
+            try {
+                out.write(buffer, 0, count);
+            } catch (IOException e) {
+                throw new PersistenceException("Unable to write JSON", e);
+            }
+            count = 0;
+        }
+        buffer[count++] = c;
+    }
+}
@@ -0,0 +1,120 @@
+package scrms.utils;
+
+import java.time.DayOfWeek;
+import java.util.Arrays;
+
+/**
+ * Weekly occupancy of one room as a bitmap of five-minute quanta, one row of words per weekday.
+ * <p>
+ * A busy range {@code [start, end)} in seconds of the day sets the quanta it touches, so an occupied
+ * quantum may be only partly busy. Overlap queries therefore widen the probe by one quantum on the left
+ * and answer conservatively: false means the range is certainly free, true means an exact check is
+ * still needed. A query costs a handful of word-level AND operations regardless of how many ranges were
+ * marked.
+ */
+public final class OccupancyBitmap {
+
+    /**
+     * Length of one quantum in seconds.
+     */
+    public static final int QUANTUM_SECONDS = 5 * 60;
+
+    /**
+     * Number of quanta in a day.
+     */
+    public static final int QUANTA_PER_DAY = 24 * 60 * 60 / QUANTUM_SECONDS;
+
+    private static final int WORDS_PER_DAY = (QUANTA_PER_DAY + Long.SIZE - 1) / Long.SIZE;
+
+    private final long[] words = new long[WORDS_PER_DAY * DayOfWeek.values().length];
+
+    /**
+     * Marks a busy range.
+     *
+     * @param day   day of week
+     * @param start first second of the range, inclusive
+     * @param end   last second of the range, exclusive
+     */
+    public void mark(DayOfWeek day, int start, int end) {
+        int first = start / QUANTUM_SECONDS;
+        int last = Math.max(first, (end + QUANTUM_SECONDS - 1) / QUANTUM_SECONDS - 1);
+        int base = base(day);
+        for (int word = first / Long.SIZE; word <= last / Long.SIZE; word++) {
+            words[base + word] |= mask(word, first, last);
+        }
+    }
+
+    /**
+     * Clears every quantum of a day, e.g. before re-marking it after a removal.
+     *
+     * @param day day of week
+     */
+    public void clear(DayOfWeek day) {
+        int base = base(day);
+        Arrays.fill(words, base, base + WORDS_PER_DAY, 0L);
+    }
+
+    /**
+     * Checks whether a range may overlap a marked one under the inclusive conflict rule.
+     *
+     * @param day   day of week
+     * @param start first second of the range, inclusive
+     * @param end   last second of the range, inclusive
+     * @return false when the range is certainly free
+     */
+    public boolean mayOverlap(DayOfWeek day, int start, int end) {
+        int first = Math.max(0, start / QUANTUM_SECONDS - 1);
+        int last = Math.min(QUANTA_PER_DAY - 1, end / QUANTUM_SECONDS);
+        int base = base(day);
+        for (int word = first / Long.SIZE; word <= last / Long.SIZE; word++) {
+            if ((words[base + word] & mask(word, first, last)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counts the occupied quanta of a day within a range.
+     *
+     * @param day   day of week
+     * @param start first second of the range, inclusive
+     * @param end   last second of the range, exclusive
+     * @return number of occupied quanta
+     */
+    public int occupied(DayOfWeek day, int start, int end) {
+        int first = start / QUANTUM_SECONDS;
+        int last = (end + QUANTUM_SECONDS - 1) / QUANTUM_SECONDS - 1;
+        int base = base(day);
+        int count = 0;
+        for (int word = first / Long.SIZE; word <= last / Long.SIZE; word++) {
+            count += Long.bitCount(words[base + word] & mask(word, first, last));
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether nothing is marked on any day.
+     *
+     * @return true when the bitmap is empty
+     */
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int base(DayOfWeek day) {
+        return day.ordinal() * WORDS_PER_DAY;
+    }
+
+    private static long mask(int word, int first, int last) {
+        int low = Math.max(first - word * Long.SIZE, 0);
+        int high = Math.min(last - word * Long.SIZE, Long.SIZE - 1);
+        long upTo = high == Long.SIZE - 1 ? -1L : (1L << (high + 1)) - 1;
+        return upTo & (-1L << low);
+    }
+}